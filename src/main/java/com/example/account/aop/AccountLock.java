@@ -1,5 +1,7 @@
 package com.example.account.aop;
 
+import com.example.account.type.LockMode;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
@@ -10,5 +12,23 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Inherited
 public @interface AccountLock {
+    /**
+     * account.lock.policies.{name} 으로 재정의할 때 쓰는 이름
+     * 비어 있으면 메서드 이름을 쓴다
+     */
+    String name() default "";
+
     long tryLockTime() default 5000L;
+
+    /**
+     * 0 이하이면 고정 lease 대신 watchdog 으로 연장한다
+     */
+    long leaseTime() default 15000L;
+
+    boolean fair() default false;
+
+    /**
+     * OPTIMISTIC 이면 락 없이 Account 버전 충돌 시 재시도한다
+     */
+    LockMode mode() default LockMode.LOCK;
 }
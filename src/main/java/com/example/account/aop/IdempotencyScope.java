@@ -0,0 +1,8 @@
+package com.example.account.aop;
+
+/**
+ * 멱등키를 요청한 쪽 범위로 나눈다, 같은 키라도 사용자나 계좌가 다르면 다른 요청이다
+ */
+public interface IdempotencyScope {
+    String idempotencyScope();
+}
@@ -0,0 +1,19 @@
+package com.example.account.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Idempotency-Key 헤더가 있으면 같은 키의 재요청에 처음 응답을 그대로 돌려준다
+ * 계좌 락보다 먼저 실행된다
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+    /**
+     * 키 범위, 같은 키라도 범위가 다르면 다른 요청이다
+     */
+    String value();
+}
@@ -0,0 +1,54 @@
+package com.example.account.aop;
+
+import com.example.account.type.LockMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class LockPolicy {
+    public static final LockPolicy DEFAULT = LockPolicy.builder()
+            .name("default")
+            .waitTime(1000L)
+            .leaseTime(15000L)
+            .fair(false)
+            .mode(LockMode.LOCK)
+            .build();
+
+    private final String name;
+    private final long waitTime;
+    private final long leaseTime;
+    private final boolean fair;
+    @Builder.Default
+    private final LockMode mode = LockMode.LOCK;
+
+    public boolean isWatchdog() {
+        return leaseTime <= 0;
+    }
+
+    public boolean isOptimistic() {
+        return mode == LockMode.OPTIMISTIC;
+    }
+
+    public boolean isLockFree() {
+        return mode == LockMode.NONE;
+    }
+
+    public boolean isPartitioned() {
+        return mode == LockMode.PARTITIONED;
+    }
+
+    public static LockPolicy from(String name, AccountLock accountLock) {
+        return LockPolicy.builder()
+                .name(name)
+                .waitTime(accountLock.tryLockTime())
+                .leaseTime(accountLock.leaseTime())
+                .fair(accountLock.fair())
+                .mode(accountLock.mode())
+                .build();
+    }
+}
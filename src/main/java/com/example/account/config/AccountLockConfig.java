@@ -0,0 +1,30 @@
+package com.example.account.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableConfigurationProperties(AccountLockProperties.class)
+public class AccountLockConfig {
+
+    /**
+     * 비동기 락을 잡은 뒤 핸들러 본문을 실행하는 스레드 풀
+     * Redisson 이벤트 루프 스레드에서 DB 작업을 하지 않기 위해 쓴다
+     */
+    @Bean
+    public ThreadPoolTaskExecutor accountLockExecutor(
+            @Value("${account.lock.async.core-pool-size:8}") int corePoolSize,
+            @Value("${account.lock.async.max-pool-size:32}") int maxPoolSize,
+            @Value("${account.lock.async.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("account-lock-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.account.config;
+
+import com.example.account.type.LockMode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "account.lock")
+public class AccountLockProperties {
+    /**
+     * AccountLock 이름별 재정의 값, 비어 있는 항목은 어노테이션 값을 그대로 쓴다
+     */
+    private Map<String, @Valid Policy> policies = new HashMap<>();
+
+    /**
+     * true 일 때만 정책을 락 없는 none 모드로 바꿀 수 있다, 모든 락 정책이 잔액을 바꾸는 요청을 지킨다
+     */
+    private boolean allowLockFree = false;
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Policy {
+        @Min(0)
+        @Max(60_000)
+        private Long waitTime;
+        // 0 이하이면 watchdog 으로 연장한다
+        @Min(-1)
+        @Max(300_000)
+        private Long leaseTime;
+        private Boolean fair;
+        private LockMode mode;
+
+        public Policy(Long waitTime, Long leaseTime, Boolean fair) {
+            this(waitTime, leaseTime, fair, null);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.account.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * fault-injection 프로필에서만 켜지는 지연, 오류 주입 설정
+ * 운영에서는 이 프로필을 쓰지 않는다
+ */
+@Configuration
+@Profile("fault-injection")
+@EnableConfigurationProperties(FaultInjectionProperties.class)
+public class FaultInjectionConfig {
+}
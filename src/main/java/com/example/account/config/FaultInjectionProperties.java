@@ -0,0 +1,59 @@
+package com.example.account.config;
+
+import com.example.account.type.ErrorCode;
+import com.example.account.type.LatencyDistribution;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "account.fault")
+public class FaultInjectionProperties {
+    /**
+     * 대상별 규칙
+     * TransactionService 메서드 이름(useBalance, cancelBalance ...), lock(락 획득), db(리포지토리 호출)
+     */
+    private Map<String, @Valid Rule> rules = new HashMap<>();
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Rule {
+        // 지연을 넣을 확률
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        @Builder.Default
+        private double latencyRate = 1.0;
+        @Builder.Default
+        private LatencyDistribution distribution = LatencyDistribution.FIXED;
+        // FIXED 는 지연, UNIFORM 은 상한, EXPONENTIAL 은 평균
+        @Min(0)
+        private long latencyMillis;
+        // UNIFORM 의 하한
+        @Min(0)
+        private long minLatencyMillis;
+        // 0 이면 상한 없음
+        @Min(0)
+        private long maxLatencyMillis;
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double errorRate;
+        @Builder.Default
+        private ErrorCode errorCode = ErrorCode.INTERNAL_SERVER_ERROR;
+    }
+}
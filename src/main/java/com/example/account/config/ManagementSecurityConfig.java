@@ -0,0 +1,43 @@
+package com.example.account.config;
+
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * 관리 엔드포인트는 ACCOUNT_ADMIN 역할의 HTTP Basic 인증을 요구하고, 계좌 API 는 지금처럼 인증 없이 둔다
+ * 관리 계정은 spring.security.user 로 설정한다
+ */
+@Configuration
+public class ManagementSecurityConfig {
+    public static final String ADMIN_ROLE = "ACCOUNT_ADMIN";
+
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementSecurityFilterChain(HttpSecurity http) throws Exception {
+        http.securityMatcher(EndpointRequest.toAnyEndpoint().excluding(HealthEndpoint.class))
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().hasRole(ADMIN_ROLE))
+                .httpBasic(Customizer.withDefaults())
+                // 세션 없이 Basic 인증만 쓰므로 CSRF 토큰이 필요 없다
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session ->
+                        session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
+    public SecurityFilterChain apiSecurityFilterChain(HttpSecurity http) throws Exception {
+        http.authorizeHttpRequests(authorize -> authorize.anyRequest().permitAll())
+                .csrf(csrf -> csrf.disable())
+                // H2 콘솔은 frame 으로 열린다
+                .headers(headers -> headers.frameOptions(frameOptions -> frameOptions.sameOrigin()));
+        return http.build();
+    }
+}
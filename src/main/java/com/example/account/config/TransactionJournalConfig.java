@@ -0,0 +1,28 @@
+package com.example.account.config;
+
+import com.example.account.service.TransactionJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * account.journal.enabled=true 일 때만 거래 저널을 쓴다
+ * 끄면 지금처럼 요청 안에서 거래를 DB 에 바로 저장한다
+ */
+@Configuration
+@ConditionalOnProperty(name = "account.journal.enabled", havingValue = "true")
+public class TransactionJournalConfig {
+
+    @Bean(destroyMethod = "close")
+    public TransactionJournal transactionJournal(
+            @Value("${account.journal.directory:./journal}") String directory,
+            @Value("${account.journal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${account.journal.group-commit-millis:2}") long groupCommitMillis) {
+        return new TransactionJournal(Path.of(directory), (int) segmentSize.toBytes(),
+                groupCommitMillis);
+    }
+}
@@ -1,27 +1,38 @@
 package com.example.account.controller;
 
-import com.example.account.domain.Account;
+import com.example.account.aop.AccountLock;
+import com.example.account.dto.AccountDetail;
 import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
+import com.example.account.dto.CreateAccountBulk;
 import com.example.account.dto.DeleteAccount;
+import com.example.account.dto.ShardAccount;
+import com.example.account.service.AccountBalanceShardService;
+import com.example.account.service.AccountEtagResolver;
 import com.example.account.service.AccountService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @RestController
 @RequiredArgsConstructor
 public class AccountController {
     private final AccountService accountService;
+    private final AccountBalanceShardService accountBalanceShardService;
+    private final AccountEtagResolver accountEtagResolver;
 
     @PostMapping("/account")
     public CreateAccount.Response createAccount(
@@ -36,6 +47,16 @@ public class AccountController {
         );
     }
 
+    /**
+     * 여러 사용자의 계좌를 한 번에 만든다, 결과는 요청 순서대로 항목마다 돌려준다
+     */
+    @PostMapping("/account/bulk")
+    public List<CreateAccountBulk.Result> createAccounts(
+            @RequestBody @Valid CreateAccountBulk.Request request
+    ) {
+        return accountService.createAccounts(request.getItems());
+    }
+
     @DeleteMapping("/account")
     public DeleteAccount.Response deleteAccount(
             @RequestBody @Valid DeleteAccount.Request request
@@ -49,24 +70,67 @@ public class AccountController {
         );
     }
 
+    /**
+     * 거래가 몰리는 계좌의 잔액을 여러 슬롯으로 나눈다
+     */
+    @PostMapping("/account/shard")
+    @AccountLock(name = "shard")
+    public ShardAccount.Response shardAccount(
+            @RequestBody @Valid ShardAccount.Request request
+    ) {
+        return ShardAccount.Response.from(
+                accountBalanceShardService.enableSharding(
+                        request.getUserId(),
+                        request.getAccountNumber(),
+                        request.getShardCount()
+                )
+        );
+    }
+
+    /**
+     * Redis 에 있는 ETag 가 If-None-Match 와 같으면 DB 를 읽지 않고 304 를 돌려준다
+     * 없으면 목록을 읽고 목록 조회 결과의 계좌 버전으로 ETag 를 만든다
+     */
     @GetMapping("/account")
-    public List<AccountInfo> getAccountsByUserId(
-            @RequestParam("user_id") Long userId) {
-        return accountService.getAccountsByUserId(userId).stream().map(
-                        accountDto -> AccountInfo
-                                .builder()
-                                .accountNumber(accountDto.getAccountNumber())
-                                .balance(accountDto.getBalance())
-                                .build())
-                .collect(Collectors.toList());
+    public ResponseEntity<List<AccountInfo>> getAccountsByUserId(
+            @RequestParam("user_id") Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<String> cached = accountEtagResolver.cachedUserEtag(userId);
+        if (cached.isPresent() && AccountEtagResolver.matches(ifNoneMatch, cached.get())) {
+            return notModified(cached.get());
+        }
+        List<AccountInfo> accountInfos = accountService.getAccountsByUserId(userId);
+        Optional<String> etag = cached.isPresent() ? cached
+                : accountEtagResolver.userEtag(userId, accountInfos);
+        if (etag.isPresent() && AccountEtagResolver.matches(ifNoneMatch, etag.get())) {
+            return notModified(etag.get());
+        }
+        return withEtag(etag).body(accountInfos);
     }
 
+    /**
+     * Redis 에 ETag 가 있으면 DB 를 읽지 않고 비교한다
+     */
     @GetMapping("/account/{id}")
-    public Account getAccount(
-            @PathVariable("id") Long id
+    public ResponseEntity<AccountDetail> getAccount(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        return accountService.getAccount(id);
+        Optional<String> etag = accountEtagResolver.accountEtag(id);
+        if (etag.isPresent() && AccountEtagResolver.matches(ifNoneMatch, etag.get())) {
+            return notModified(etag.get());
+        }
+        AccountDetail accountDetail = accountService.getAccount(id);
+        return withEtag(etag).body(accountDetail);
     }
 
+    private static ResponseEntity.BodyBuilder withEtag(Optional<String> etag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        etag.ifPresent(builder::eTag);
+        return builder;
+    }
 
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
 }
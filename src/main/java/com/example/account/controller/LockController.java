@@ -0,0 +1,37 @@
+package com.example.account.controller;
+
+import com.example.account.dto.LockContentionInfo;
+import com.example.account.dto.PartitionQueueInfo;
+import com.example.account.service.AccountPartitionExecutor;
+import com.example.account.service.LockContentionMonitor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class LockController {
+    private final LockContentionMonitor lockContentionMonitor;
+    private final AccountPartitionExecutor accountPartitionExecutor;
+
+    @GetMapping("/lock/hot-accounts")
+    public List<LockContentionInfo> getHotAccounts(
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        return lockContentionMonitor.getHotAccounts(limit);
+    }
+
+    @DeleteMapping("/lock/hot-accounts")
+    public void resetHotAccounts() {
+        lockContentionMonitor.reset();
+    }
+
+    @GetMapping("/lock/partitions")
+    public List<PartitionQueueInfo> getPartitionQueues() {
+        return accountPartitionExecutor.getQueueInfos();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.account.controller;
+
+import com.example.account.config.AccountLockProperties;
+import com.example.account.service.LockPolicyRegistry;
+import com.example.account.type.LockMode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 락 정책 재정의를 관리 포트의 /actuator/lockpolicies 로만 바꿀 수 있게 한다
+ * 관리 엔드포인트는 ManagementSecurityConfig 에서 인증을 요구한다
+ */
+@Component
+@Endpoint(id = "lockpolicies")
+@RequiredArgsConstructor
+public class LockPolicyEndpoint {
+    private final LockPolicyRegistry lockPolicyRegistry;
+    private final Validator validator;
+
+    @ReadOperation
+    public Map<String, AccountLockProperties.Policy> getLockPolicies() {
+        return lockPolicyRegistry.getOverrides();
+    }
+
+    @WriteOperation
+    public AccountLockProperties.Policy updateLockPolicy(
+            @Selector String name,
+            @Nullable Long waitTime,
+            @Nullable Long leaseTime,
+            @Nullable Boolean fair,
+            @Nullable LockMode mode
+    ) {
+        AccountLockProperties.Policy policy =
+                new AccountLockProperties.Policy(waitTime, leaseTime, fair, mode);
+        Set<ConstraintViolation<AccountLockProperties.Policy>> violations =
+                validator.validate(policy);
+        if (!violations.isEmpty()) {
+            String reason = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.joining(", "));
+            throw new InvalidEndpointRequestException(
+                    "Invalid lock policy " + name + " : " + reason, reason);
+        }
+        try {
+            return lockPolicyRegistry.updateOverride(name, policy);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    @DeleteOperation
+    public void deleteLockPolicy(@Selector String name) {
+        lockPolicyRegistry.removeOverride(name);
+    }
+}
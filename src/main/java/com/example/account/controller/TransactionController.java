@@ -1,41 +1,104 @@
 package com.example.account.controller;
 
 import com.example.account.aop.AccountLock;
+import com.example.account.aop.Idempotent;
 import com.example.account.dto.CancelBalance;
+import com.example.account.dto.FailedTransactionQueueInfo;
 import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionCacheInfo;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.Transfer;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.exception.AccountException;
+import com.example.account.service.FailedTransactionRecorder;
+import com.example.account.service.TransactionBatchService;
+import com.example.account.service.TransactionCache;
+import com.example.account.service.TransactionExportService;
+import com.example.account.service.TransactionHistoryService;
 import com.example.account.service.TransactionService;
+import com.example.account.service.TransactionTransferService;
+import com.example.account.type.ExportFormat;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.TRANSFER_OUT;
+import static com.example.account.type.TransactionType.USE;
+
 @RestController
 @Slf4j
 @RequiredArgsConstructor
 public class TransactionController {
     private final TransactionService transactionService;
+    private final TransactionBatchService transactionBatchService;
+    private final TransactionTransferService transactionTransferService;
+    private final TransactionHistoryService transactionHistoryService;
+    private final TransactionExportService transactionExportService;
+    private final FailedTransactionRecorder failedTransactionRecorder;
+    private final TransactionCache transactionCache;
 
     @PostMapping("/transaction/use")
-    @AccountLock
+    @Idempotent("use")
+    @AccountLock(name = "use", tryLockTime = 1000L)
     public UseBalance.Response useBalance(
             @Valid @RequestBody UseBalance.Request request
-    ) throws InterruptedException {
+    ) {
+        return processUseBalance(request);
+    }
+
+    /**
+     * 락을 기다리는 동안 서블릿 스레드를 반납하는 비동기 핸들러
+     */
+    @PostMapping("/transaction/use/async")
+    @Idempotent("use")
+    @AccountLock(name = "use", tryLockTime = 1000L)
+    public CompletableFuture<UseBalance.Response> useBalanceAsync(
+            @Valid @RequestBody UseBalance.Request request
+    ) {
+        return CompletableFuture.completedFuture(processUseBalance(request));
+    }
+
+    /**
+     * 여러 출금 요청을 계좌별로 묶어 처리한다, 결과는 요청 순서대로 항목마다 돌려준다
+     */
+    @PostMapping("/transaction/use/batch")
+    public List<UseBalance.Response> useBalanceBatch(
+            @Valid @RequestBody UseBalanceBatch.Request request
+    ) {
+        return transactionBatchService.useBalances(request.getItems()).stream()
+                .map(UseBalance.Response::from)
+                .toList();
+    }
 
+    private UseBalance.Response processUseBalance(UseBalance.Request request) {
         try {
-            Thread.sleep(5000L);
             return UseBalance.Response.from(transactionService.useBalance(request.getUserId(),
                     request.getAccountNumber(),
                     request.getAmount()));
         } catch (AccountException e) {
             log.error("Failed to use balance. ");
 
-            transactionService.saveFailedUseTransaction(
+            failedTransactionRecorder.record(USE,
                     request.getAccountNumber(),
                     request.getAmount());
             throw e;
@@ -43,11 +106,24 @@ public class TransactionController {
     }
 
     @PostMapping("/transaction/cancel")
-    @AccountLock
+    @Idempotent("cancel")
+    @AccountLock(name = "cancel", tryLockTime = 1000L)
     public CancelBalance.Response useBalance(
             @Valid @RequestBody CancelBalance.Request request
     ) {
+        return processCancelBalance(request);
+    }
 
+    @PostMapping("/transaction/cancel/async")
+    @Idempotent("cancel")
+    @AccountLock(name = "cancel", tryLockTime = 1000L)
+    public CompletableFuture<CancelBalance.Response> cancelBalanceAsync(
+            @Valid @RequestBody CancelBalance.Request request
+    ) {
+        return CompletableFuture.completedFuture(processCancelBalance(request));
+    }
+
+    private CancelBalance.Response processCancelBalance(CancelBalance.Request request) {
         try {
             return CancelBalance.Response.from
                     (transactionService.cancelBalance(
@@ -57,17 +133,100 @@ public class TransactionController {
         } catch (AccountException e) {
             log.error("Failed to use balance. ");
 
-            transactionService.saveFailedCancelTransaction(
+            failedTransactionRecorder.record(CANCEL,
                     request.getAccountNumber(),
                     request.getAmount());
             throw e;
         }
     }
 
+    /**
+     * 두 계좌의 락은 서비스에서 계좌번호 순서로 잡는다
+     */
+    @PostMapping("/transaction/transfer")
+    @Idempotent("transfer")
+    public Transfer.Response transfer(
+            @Valid @RequestBody Transfer.Request request
+    ) {
+        try {
+            return Transfer.Response.from(transactionTransferService.transfer(
+                            request.getUserId(),
+                            request.getFromAccountNumber(),
+                            request.getToAccountNumber(),
+                            request.getAmount()),
+                    request.getToAccountNumber());
+        } catch (AccountException e) {
+            log.error("Failed to transfer. ");
+
+            failedTransactionRecorder.record(TRANSFER_OUT,
+                    request.getFromAccountNumber(),
+                    request.getAmount());
+            throw e;
+        }
+    }
+
     @GetMapping("/transaction/{transactionId}")
     public QueryTransactionResponse queryTransaction(
             @PathVariable("transactionId") String transactionId
     ) {
         return QueryTransactionResponse.from(transactionService.queryTransaction(transactionId));
     }
+
+    /**
+     * 계좌의 거래 내역을 최근 순으로 돌려준다, 다음 페이지는 응답의 nextCursor 를 cursor 로 넘긴다
+     * from 은 포함, to 는 포함하지 않는다
+     */
+    @GetMapping("/account/{accountNumber}/transactions")
+    public TransactionHistory.Response getTransactions(
+            @PathVariable("accountNumber") String accountNumber,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "transaction_type", required = false)
+            TransactionType transactionType,
+            @RequestParam(value = "result_type", required = false)
+            TransactionResultType resultType,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        return transactionHistoryService.getTransactions(accountNumber, cursor, from, to,
+                transactionType, resultType, size);
+    }
+
+    /**
+     * 계좌 또는 기간의 거래를 NDJSON, CSV 로 내려준다, 응답은 길이 없이 나눠서(chunked) 보낸다
+     * 오래 걸리는 내보내기가 비동기 요청 타임아웃에 걸리지 않도록 요청 스레드에서 바로 쓴다
+     */
+    @GetMapping("/transaction/export")
+    public void exportTransactions(
+            @RequestParam(value = "account_number", required = false) String accountNumber,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format,
+            HttpServletResponse response
+    ) throws IOException {
+        // 응답을 쓰기 시작하면 상태 코드를 바꿀 수 없으므로 먼저 확인한다
+        Long accountId = transactionExportService.resolveAccountId(accountNumber, from, to);
+
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("transactions." + format.getExtension())
+                .build()
+                .toString());
+        transactionExportService.export(accountId, from, to, format, response.getOutputStream());
+    }
+
+    @GetMapping("/transaction/failed-queue")
+    public FailedTransactionQueueInfo getFailedTransactionQueue() {
+        return failedTransactionRecorder.getQueueInfo();
+    }
+
+    @GetMapping("/transaction/cache")
+    public TransactionCacheInfo getTransactionCache() {
+        return transactionCache.getInfo();
+    }
 }
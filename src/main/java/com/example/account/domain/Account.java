@@ -7,7 +7,11 @@ import com.example.account.type.ErrorCode;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -24,9 +28,10 @@ import static com.example.account.type.ErrorCode.AMOUNT_EXCEED_BALANCE;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = "account_number"))
 public class Account extends BaseEntity {
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private AccountUser accountUser;
     private String accountNumber;
 
@@ -37,6 +42,16 @@ public class Account extends BaseEntity {
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
 
+    @Version
+    private Long version;
+
+    // 1 보다 크면 잔액이 AccountBalanceSlot 으로 나뉘어 있다
+    private Integer shardCount;
+
+    public boolean isSharded() {
+        return shardCount != null && shardCount > 1;
+    }
+
     public void useBalance(Long amount) {
         if (amount > balance) {
             throw new AccountException(AMOUNT_EXCEED_BALANCE);
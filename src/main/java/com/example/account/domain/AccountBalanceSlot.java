@@ -0,0 +1,31 @@
+package com.example.account.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 분할된 계좌 잔액의 한 조각
+ * 계좌 잔액은 Account.balance 와 모든 슬롯 잔액의 합이다
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "slot_index"}))
+public class AccountBalanceSlot extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Account account;
+    private Integer slotIndex;
+    private Long balance;
+}
@@ -16,4 +16,7 @@ import lombok.Setter;
 public class AccountUser extends BaseEntity {
     private String name;
 
+    // 해지되지 않은 계좌 수, 계좌 생성과 해지에서 조건부 UPDATE 로만 바꾼다
+    private Integer accountCount;
+
 }
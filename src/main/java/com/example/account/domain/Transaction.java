@@ -5,7 +5,10 @@ import com.example.account.type.TransactionType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -20,6 +23,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+// 계좌별 거래 내역 키셋 페이지 조회와 기간별 거래 내보내기용
+@Table(indexes = {
+        @Index(name = "idx_transaction_account_transacted_at",
+                columnList = "account_id, transacted_at, id"),
+        @Index(name = "idx_transaction_transacted_at", columnList = "transacted_at, id")
+})
 public class Transaction extends BaseEntity {
 
     @Enumerated(EnumType.STRING)
@@ -28,7 +37,7 @@ public class Transaction extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private TransactionResultType transactionResultType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
     private Long amount;
     private Long balanceSnapShot;
@@ -36,4 +45,7 @@ public class Transaction extends BaseEntity {
     private String transactionId;
     private LocalDateTime transactedAt;
 
+    // 이체는 출금, 입금 거래가 서로의 거래번호를 가진다
+    private String linkedTransactionId;
+
 }
@@ -0,0 +1,24 @@
+package com.example.account.dto;
+
+import com.example.account.type.AccountStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AccountDetail {
+    private Long userId;
+    private String accountNumber;
+    private AccountStatus accountStatus;
+    private Long balance;
+    private LocalDateTime registeredAt;
+    private LocalDateTime unRegisteredAt;
+}
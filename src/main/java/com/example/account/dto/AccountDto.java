@@ -18,6 +18,7 @@ public class AccountDto {
     private Long userId;
     private String accountNumber;
     private Long balance;
+    private Integer shardCount;
 
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
@@ -28,6 +29,7 @@ public class AccountDto {
                 .userId(account.getAccountUser().getId())
                 .accountNumber(account.getAccountNumber())
                 .balance(account.getBalance())
+                .shardCount(account.getShardCount())
                 .registeredAt(account.getRegisteredAt())
                 .unRegisteredAt(account.getUnRegisteredAt())
                 .build();
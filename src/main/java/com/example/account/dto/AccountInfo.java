@@ -1,5 +1,6 @@
 package com.example.account.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -15,5 +16,31 @@ public class AccountInfo {
     private String accountNumber;
     private Long balance;
 
-    
+    /**
+     * ETag 를 만들 때만 쓰고 응답에는 넣지 않는다
+     */
+    @JsonIgnore
+    private Long id;
+    @JsonIgnore
+    private Long version;
+    @JsonIgnore
+    private Long slotBalance;
+
+    public AccountInfo(String accountNumber, Long balance) {
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+    }
+
+    /**
+     * 목록 조회 쿼리용, 슬롯 잔액 합을 한 번만 읽어서 잔액에 더한다
+     * 계좌가 없는 사용자의 행은 계좌 잔액이 null 이라 잔액도 null 이다
+     */
+    public AccountInfo(Long id, Long version, String accountNumber,
+                       Long accountBalance, Long slotBalance) {
+        this.id = id;
+        this.version = version;
+        this.accountNumber = accountNumber;
+        this.balance = accountBalance == null ? null : accountBalance + slotBalance;
+        this.slotBalance = slotBalance;
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.account.dto;
 
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.IdempotencyScope;
 import com.example.account.type.TransactionResultType;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -21,7 +22,7 @@ public class CancelBalance {
     @Setter
     @AllArgsConstructor
     @NoArgsConstructor
-    public static class Request implements AccountLockIdInterface {
+    public static class Request implements AccountLockIdInterface, IdempotencyScope {
         @NotBlank
         private String transactionId;
 
@@ -33,6 +34,11 @@ public class CancelBalance {
         @Min(10)
         @Max(1000_000_000)
         private Long amount;
+
+        @Override
+        public String idempotencyScope() {
+            return accountNumber;
+        }
     }
 
     @Getter
@@ -0,0 +1,43 @@
+package com.example.account.dto;
+
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+public class CreateAccountBulk {
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Request {
+        @NotEmpty
+        @Size(max = 10000)
+        @Valid
+        private List<CreateAccount.Request> items;
+    }
+
+    /**
+     * 항목별 결과, 성공이면 accountNumber 만 실패면 errorCode 만 있다
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        private Long userId;
+        private String accountNumber;
+        private ErrorCode errorCode;
+    }
+}
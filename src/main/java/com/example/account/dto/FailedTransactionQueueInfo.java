@@ -0,0 +1,21 @@
+package com.example.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FailedTransactionQueueInfo {
+    private int queueDepth;
+    private int remainingCapacity;
+    private long recordedCount;
+    private long writtenCount;
+    private long droppedCount;
+    private long writeFailedCount;
+}
@@ -0,0 +1,34 @@
+package com.example.account.dto;
+
+import com.example.account.type.JournalRecordState;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class JournalRecord {
+    // 저널 안의 위치, (세그먼트 번호 << 32) | 오프셋
+    private long position;
+    private String transactionId;
+    private Long accountId;
+    private String accountNumber;
+    private TransactionType transactionType;
+    private TransactionResultType transactionResultType;
+    private Long amount;
+    private Long balanceSnapShot;
+    private LocalDateTime transactedAt;
+    private String linkedTransactionId;
+    // 같은 거래번호의 마지막 레코드 상태가 그 거래의 상태다
+    @Builder.Default
+    private JournalRecordState state = JournalRecordState.COMMITTED;
+}
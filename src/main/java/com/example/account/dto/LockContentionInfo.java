@@ -0,0 +1,26 @@
+package com.example.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LockContentionInfo {
+    private String accountNumber;
+    private int currentWaiters;
+    private long acquiredCount;
+    private long failedCount;
+    private long totalWaitTime;
+    private long waitTimeP50;
+    private long waitTimeP99;
+    private long waitTimeMax;
+    private long holdTimeP50;
+    private long holdTimeP99;
+    private long holdTimeMax;
+}
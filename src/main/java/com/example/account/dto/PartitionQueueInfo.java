@@ -0,0 +1,21 @@
+package com.example.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PartitionQueueInfo {
+    private int partition;
+    private int queueDepth;
+    private int remainingCapacity;
+    private long completedCount;
+    private long rejectedCount;
+    private long expiredCount;
+}
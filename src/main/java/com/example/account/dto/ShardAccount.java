@@ -0,0 +1,54 @@
+package com.example.account.dto;
+
+import com.example.account.aop.AccountLockIdInterface;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+public class ShardAccount {
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Request implements AccountLockIdInterface {
+        @NotNull
+        @Min(1)
+        private Long userId;
+
+        @NotBlank
+        @Size(min = 10, max = 10)
+        private String accountNumber;
+
+        @NotNull
+        @Min(2)
+        @Max(64)
+        private Integer shardCount;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String accountNumber;
+        private Integer shardCount;
+        private Long balance;
+
+        public static Response from(AccountDto accountDto) {
+            return Response.builder()
+                    .accountNumber(accountDto.getAccountNumber())
+                    .shardCount(accountDto.getShardCount())
+                    .balance(accountDto.getBalance())
+                    .build();
+        }
+    }
+}
@@ -24,16 +24,25 @@ public class TransactionDto {
     private Long balanceSnapShot;
     private String transactionId;
     private LocalDateTime transactedAt;
+    private String linkedTransactionId;
 
     public static TransactionDto fromEntity(Transaction transaction) {
+        return fromEntity(transaction, transaction.getAccount().getAccountNumber());
+    }
+
+    /**
+     * 계좌번호를 이미 알고 있으면 지연 로딩된 계좌를 초기화하지 않는다
+     */
+    public static TransactionDto fromEntity(Transaction transaction, String accountNumber) {
         return TransactionDto.builder()
-                .accountNumber(transaction.getAccount().getAccountNumber())
+                .accountNumber(accountNumber)
                 .transactionType(transaction.getTransactionType())
                 .transactionResultType(transaction.getTransactionResultType())
                 .amount(transaction.getAmount())
                 .balanceSnapShot(transaction.getBalanceSnapShot())
                 .transactionId(transaction.getTransactionId())
                 .transactedAt(transaction.getTransactedAt())
+                .linkedTransactionId(transaction.getLinkedTransactionId())
                 .build();
     }
 }
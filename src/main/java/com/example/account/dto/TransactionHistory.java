@@ -0,0 +1,53 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class TransactionHistory {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        /**
+         * 다음 페이지 커서를 만들 때만 쓰고 응답에는 넣지 않는다
+         */
+        @JsonIgnore
+        private Long id;
+        private String transactionId;
+        private TransactionType transactionType;
+        private TransactionResultType transactionResultType;
+        private Long amount;
+        private Long balanceSnapShot;
+        private LocalDateTime transactedAt;
+        private String linkedTransactionId;
+    }
+
+    /**
+     * 최근 거래부터 순서대로, 다음 페이지가 있으면 nextCursor 를 넘겨서 이어 읽는다
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Response {
+        private String accountNumber;
+        private List<Item> items;
+        private String nextCursor;
+    }
+}
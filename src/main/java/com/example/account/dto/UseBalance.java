@@ -1,6 +1,7 @@
 package com.example.account.dto;
 
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.IdempotencyScope;
 import com.example.account.type.TransactionResultType;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -21,7 +22,7 @@ public class UseBalance {
     @Setter
     @AllArgsConstructor
     @NoArgsConstructor
-    public static class Request implements AccountLockIdInterface {
+    public static class Request implements AccountLockIdInterface, IdempotencyScope {
         @NotNull
         @Min(1)
         private Long userId;
@@ -34,6 +35,11 @@ public class UseBalance {
         @Min(10)
         @Max(1000_000_000)
         private Long amount;
+
+        @Override
+        public String idempotencyScope() {
+            return userId + ":" + accountNumber;
+        }
     }
 
     @Getter
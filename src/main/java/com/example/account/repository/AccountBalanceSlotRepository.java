@@ -0,0 +1,40 @@
+package com.example.account.repository;
+
+import com.example.account.domain.AccountBalanceSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, Long> {
+
+    @Modifying
+    @Query("update AccountBalanceSlot s set s.balance = s.balance - :amount"
+            + " where s.account.id = :accountId and s.slotIndex = :slotIndex"
+            + " and s.balance >= :amount")
+    int debit(@Param("accountId") Long accountId,
+              @Param("slotIndex") int slotIndex,
+              @Param("amount") Long amount);
+
+    @Modifying
+    @Query("update AccountBalanceSlot s set s.balance = s.balance + :amount"
+            + " where s.account.id = :accountId and s.slotIndex = :slotIndex")
+    int credit(@Param("accountId") Long accountId,
+               @Param("slotIndex") int slotIndex,
+               @Param("amount") Long amount);
+
+    @Query("select coalesce(sum(s.balance), 0) from AccountBalanceSlot s"
+            + " where s.account.id = :accountId")
+    Long sumBalance(@Param("accountId") Long accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from AccountBalanceSlot s where s.account.id = :accountId"
+            + " order by s.slotIndex")
+    List<AccountBalanceSlot> findAllForUpdate(@Param("accountId") Long accountId);
+}
@@ -1,20 +1,90 @@
 package com.example.account.repository;
 
 import com.example.account.domain.Account;
-import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountInfo;
+import com.example.account.type.AccountStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
-    Optional<Account> findFirstByOrderByIdDesc();
+    Optional<Account> findByAccountNumber(String accountNumber);
 
-    Integer countByAccountUser(AccountUser accountUser);
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
 
-    Optional<Account> findByAccountNumber(String accountNumber);
+    /**
+     * 사용자 확인과 계좌 목록 조회를 한 번에 한다, 엔티티를 만들지 않고 계좌번호와 잔액만 읽는다
+     * 사용자가 없으면 빈 목록이고, 계좌가 없는 사용자는 계좌번호가 null 인 행 하나가 온다
+     * 분할된 계좌의 잔액은 슬롯 잔액을 더한 값이다, ETag 를 같은 결과로 만들도록 버전과 슬롯 잔액 합도 읽는다
+     */
+    @Query("select new com.example.account.dto.AccountInfo(a.id, a.version, a.accountNumber,"
+            + " a.balance, coalesce((select sum(s.balance) from AccountBalanceSlot s"
+            + " where s.account = a), 0L))"
+            + " from AccountUser u left join Account a on a.accountUser = u"
+            + " where u.id = :userId order by a.id")
+    List<AccountInfo> findAccountInfosByUserId(@Param("userId") Long userId);
+
+    @Query("select a.accountNumber from Account a where a.shardCount > 1")
+    List<String> findShardedAccountNumbers();
+
+    @Query("select a.shardCount from Account a where a.accountNumber = :accountNumber")
+    Optional<Integer> findShardCountByAccountNumber(
+            @Param("accountNumber") String accountNumber);
+
+    /**
+     * 잔액, 상태, 소유주 확인과 출금을 UPDATE 한 번으로 처리한다, 분할된 계좌는 대상이 아니다
+     */
+    @Modifying
+    @Query("update Account a set a.balance = a.balance - :amount,"
+            + " a.version = coalesce(a.version, 0) + 1, a.updatedAt = :now"
+            + " where a.accountNumber = :accountNumber and a.balance >= :amount"
+            + " and a.accountStatus = :status and a.accountUser.id = :userId"
+            + " and (a.shardCount is null or a.shardCount <= 1)")
+    int debitIfAvailable(@Param("accountNumber") String accountNumber,
+                         @Param("userId") Long userId,
+                         @Param("amount") Long amount,
+                         @Param("status") AccountStatus status,
+                         @Param("now") LocalDateTime now);
+
+    @Query("select a.id as id, a.balance as balance from Account a"
+            + " where a.accountNumber = :accountNumber")
+    Optional<BalanceView> findBalanceViewByAccountNumber(
+            @Param("accountNumber") String accountNumber);
+
+    /**
+     * ETag 를 만들 버전만 읽는다, 분할된 계좌의 슬롯 출금은 버전을 올리지 않아서 슬롯 잔액 합을 함께 읽는다
+     */
+    @Query("select a.id as id, a.version as version,"
+            + " coalesce((select sum(s.balance) from AccountBalanceSlot s"
+            + " where s.account = a), 0) as slotBalance"
+            + " from Account a where a.id = :accountId")
+    Optional<VersionView> findVersionViewById(@Param("accountId") Long accountId);
+
+    /**
+     * 계좌번호 구간 번호, 시퀀스는 data.sql 에서 만든다
+     */
+    @Query(value = "select next value for account_number_seq", nativeQuery = true)
+    long nextAccountNumberBlock();
+
+    interface BalanceView {
+        Long getId();
+
+        Long getBalance();
+    }
+
+    interface VersionView {
+        Long getId();
+
+        Long getVersion();
 
-    List<Account> findByAccountUser(AccountUser accountUser);
+        Long getSlotBalance();
+    }
 }
@@ -1,8 +1,36 @@
 package com.example.account.repository;
 
 import com.example.account.domain.AccountUser;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface AccountUserRepository extends JpaRepository<AccountUser, Long> {
-    
+
+    /**
+     * 계좌 수가 max 보다 작을 때만 1 늘린다, 늘리지 못하면 0
+     * 행 락이 커밋까지 유지되므로 동시에 계좌를 만들어도 max 를 넘지 않는다
+     */
+    @Modifying
+    @Query("update AccountUser u set u.accountCount = coalesce(u.accountCount, 0) + 1"
+            + " where u.id = :userId and coalesce(u.accountCount, 0) < :max")
+    int incrementAccountCount(@Param("userId") Long userId, @Param("max") int max);
+
+    /**
+     * 여러 사용자의 계좌 수를 한 번에 읽고 잠근다, 교착을 피하려고 id 순서로 잠근다
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from AccountUser u where u.id in :userIds order by u.id")
+    List<AccountUser> findAllForUpdate(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("update AccountUser u set u.accountCount = u.accountCount - 1"
+            + " where u.id = :userId and u.accountCount > 0")
+    int decrementAccountCount(@Param("userId") Long userId);
 }
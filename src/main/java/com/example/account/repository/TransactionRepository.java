@@ -1,15 +1,120 @@
 package com.example.account.repository;
 
 import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository
         extends JpaRepository<Transaction, Long> {
+    // 기간이 열려 있으면 이 경계로 채워서 조건을 그대로 인덱스 범위로 쓴다
+    LocalDateTime EARLIEST_TRANSACTED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    LocalDateTime LATEST_TRANSACTED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
 
+    // TransactionDto 에 계좌번호가 필요하므로 계좌를 같이 읽는다
+    @EntityGraph(attributePaths = "account")
     Optional<Transaction> findByTransactionId(String transactionId);
 
+    @Query("select t.transactionId from Transaction t where t.transactionId in :transactionIds")
+    List<String> findTransactionIdsIn(@Param("transactionIds") Collection<String> transactionIds);
+
+    // 거래 내역은 엔티티를 만들지 않고 응답에 쓰는 열과 커서용 id 만 읽는다
+    String HISTORY_SELECT = "select new com.example.account.dto.TransactionHistory$Item(t.id,"
+            + " t.transactionId, t.transactionType, t.transactionResultType, t.amount,"
+            + " t.balanceSnapShot, t.transactedAt, t.linkedTransactionId)"
+            + " from Transaction t where t.account.id = :accountId"
+            + " and (t.transactedAt < :cursorAt"
+            + " or (t.transactedAt = :cursorAt and t.id < :cursorId))"
+            + " and t.transactedAt >= :from and t.transactedAt < :to";
+    String HISTORY_ORDER = " order by t.transactedAt desc, t.id desc";
+
+    /**
+     * (cursorAt, cursorId) 보다 앞선 거래를 최근 순으로 읽는다, OFFSET 없이 인덱스에서 바로 이어 읽는다
+     * 계좌는 외래키 값만 비교하므로 조인하지 않는다, 기간은 null 로 받지 않는다
+     * 거래 종류와 결과 조건은 있을 때만 쓰도록 조합마다 쿼리를 나눈다
+     */
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    List<TransactionHistory.Item> findHistory(@Param("accountId") Long accountId,
+                                              @Param("cursorAt") LocalDateTime cursorAt,
+                                              @Param("cursorId") Long cursorId,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              Limit limit);
+
+    @Query(HISTORY_SELECT + " and t.transactionType = :transactionType" + HISTORY_ORDER)
+    List<TransactionHistory.Item> findHistoryByType(
+            @Param("accountId") Long accountId,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("transactionType") TransactionType transactionType,
+            Limit limit);
+
+    @Query(HISTORY_SELECT + " and t.transactionResultType = :resultType" + HISTORY_ORDER)
+    List<TransactionHistory.Item> findHistoryByResult(
+            @Param("accountId") Long accountId,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("resultType") TransactionResultType resultType,
+            Limit limit);
+
+    @Query(HISTORY_SELECT + " and t.transactionType = :transactionType"
+            + " and t.transactionResultType = :resultType" + HISTORY_ORDER)
+    List<TransactionHistory.Item> findHistoryByTypeAndResult(
+            @Param("accountId") Long accountId,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("resultType") TransactionResultType resultType,
+            Limit limit);
+
+    /**
+     * 내보내기용으로 계좌의 거래를 커서로 조금씩 읽는다, 트랜잭션 안에서 쓰고 다 쓰면 닫아야 한다
+     * 읽기 전용으로 읽어서 변경 감지용 스냅샷을 만들지 않는다, 계좌와 거래일시 인덱스를 범위로 읽는다
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t join fetch t.account a"
+            + " where a.id = :accountId"
+            + " and t.transactedAt >= :from and t.transactedAt < :to"
+            + " order by t.transactedAt, t.id")
+    Stream<Transaction> streamForExportByAccount(@Param("accountId") Long accountId,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to);
+
+    /**
+     * 모든 계좌의 거래를 기간으로 읽는다, 거래일시 인덱스를 범위로 읽는다
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t join fetch t.account a"
+            + " where t.transactedAt >= :from and t.transactedAt < :to"
+            + " order by t.transactedAt, t.id")
+    Stream<Transaction> streamForExportByDateRange(@Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,184 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountBalanceSlot;
+import com.example.account.dto.AccountDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountBalanceSlotRepository;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.AccountStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_ALREADY_SHARDED;
+import static com.example.account.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.account.type.ErrorCode.AMOUNT_EXCEED_BALANCE;
+import static com.example.account.type.ErrorCode.USER_ACCOUNT_UN_MATCH;
+import static com.example.account.type.ErrorCode.USER_ALREADY_UNREGISTERED;
+
+/**
+ * 거래가 몰리는 계좌의 잔액을 여러 슬롯으로 나눠 한 행에 쓰기가 몰리지 않게 한다
+ * 출금은 잔액이 충분한 슬롯 하나에서 조건부 UPDATE 로 빼고, 모두 부족하면 슬롯을 잠그고 다시 나눈다
+ * 입금은 아무 슬롯에나 더한다
+ */
+@Slf4j
+@Service
+public class AccountBalanceShardService {
+    private final AccountRepository accountRepository;
+    private final AccountBalanceSlotRepository accountBalanceSlotRepository;
+    private final AccountEtagResolver accountEtagResolver;
+
+    // 분할이 커밋된 것을 확인한 계좌, 분할은 되돌리지 않으므로 다시 읽지 않는다
+    private final Set<String> shardedAccounts = ConcurrentHashMap.newKeySet();
+    // 분할되지 않은 것을 확인한 계좌, TTL 동안은 다시 읽지 않는다
+    private final BoundedTtlCache<String, Boolean> unshardedAccounts;
+
+    public AccountBalanceShardService(
+            AccountRepository accountRepository,
+            AccountBalanceSlotRepository accountBalanceSlotRepository,
+            AccountEtagResolver accountEtagResolver,
+            @Value("${account.shard.unsharded-cache.max-entries:100000}") int maxEntries,
+            @Value("${account.shard.unsharded-cache.ttl:1m}") Duration ttl) {
+        this.accountRepository = accountRepository;
+        this.accountBalanceSlotRepository = accountBalanceSlotRepository;
+        this.accountEtagResolver = accountEtagResolver;
+        this.unshardedAccounts = new BoundedTtlCache<>(maxEntries, ttl.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadShardedAccounts() {
+        shardedAccounts.addAll(accountRepository.findShardedAccountNumbers());
+    }
+
+    /**
+     * 락 경로에서 요청마다 DB 를 읽지 않도록 분할되지 않은 계좌도 TTL 동안 기억한다
+     * 다른 노드에서 분할된 계좌는 TTL 이 지나야 알아채고, 그 사이에는 락을 잡고 슬롯으로 처리하므로 잔액은 안전하다
+     */
+    public boolean isSharded(String accountNumber) {
+        if (shardedAccounts.contains(accountNumber)) {
+            return true;
+        }
+        if (unshardedAccounts.get(accountNumber).isPresent()) {
+            return false;
+        }
+        boolean sharded = accountRepository.findShardCountByAccountNumber(accountNumber)
+                .map(shardCount -> shardCount > 1)
+                .orElse(false);
+        if (sharded) {
+            shardedAccounts.add(accountNumber);
+        } else {
+            unshardedAccounts.put(accountNumber, Boolean.TRUE);
+        }
+        return sharded;
+    }
+
+    /**
+     * 계좌 잔액을 shardCount 개 슬롯으로 고르게 옮긴다, 분할 해제는 지원하지 않는다
+     */
+    @Transactional
+    public AccountDto enableSharding(Long userId, String accountNumber, int shardCount) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        validateEnableSharding(userId, account);
+
+        List<AccountBalanceSlot> slots = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            slots.add(AccountBalanceSlot.builder()
+                    .account(account)
+                    .slotIndex(i)
+                    .balance(0L)
+                    .build());
+        }
+        spread(slots, account.getBalance());
+        accountBalanceSlotRepository.saveAll(slots);
+
+        long total = account.getBalance();
+        account.setBalance(0L);
+        account.setShardCount(shardCount);
+        accountRepository.save(account);
+        accountEtagResolver.changedAfterCommit(account.getId(), userId);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                shardedAccounts.add(accountNumber);
+                unshardedAccounts.remove(accountNumber);
+            }
+        });
+
+        AccountDto accountDto = AccountDto.fromEntity(account);
+        accountDto.setBalance(total);
+        return accountDto;
+    }
+
+    private void validateEnableSharding(Long userId, Account account) {
+        if (!Objects.equals(userId, account.getAccountUser().getId())) {
+            throw new AccountException(USER_ACCOUNT_UN_MATCH);
+        }
+        if (account.getAccountStatus() != AccountStatus.IN_USE) {
+            throw new AccountException(USER_ALREADY_UNREGISTERED);
+        }
+        if (account.isSharded()) {
+            throw new AccountException(ACCOUNT_ALREADY_SHARDED);
+        }
+    }
+
+    public void debit(Account account, Long amount) {
+        int shardCount = account.getShardCount();
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            if (accountBalanceSlotRepository.debit(
+                    account.getId(), (start + i) % shardCount, amount) == 1) {
+                return;
+            }
+        }
+        rebalance(account, amount);
+    }
+
+    public void credit(Account account, Long amount) {
+        int slotIndex = ThreadLocalRandom.current().nextInt(account.getShardCount());
+        accountBalanceSlotRepository.credit(account.getId(), slotIndex, amount);
+    }
+
+    public Long getBalance(Account account) {
+        return account.getBalance() + accountBalanceSlotRepository.sumBalance(account.getId());
+    }
+
+    /**
+     * 어느 슬롯도 혼자서는 출금액을 감당하지 못할 때만 모든 슬롯을 잠그고 합친 뒤 다시 나눈다
+     */
+    private void rebalance(Account account, Long amount) {
+        List<AccountBalanceSlot> slots =
+                accountBalanceSlotRepository.findAllForUpdate(account.getId());
+        long total = slots.stream().mapToLong(AccountBalanceSlot::getBalance).sum();
+        if (total < amount) {
+            throw new AccountException(AMOUNT_EXCEED_BALANCE);
+        }
+        log.debug("Rebalancing slots. accountNumber : {}, slots : {}",
+                account.getAccountNumber(), slots.size());
+        spread(slots, total - amount);
+    }
+
+    private static void spread(List<AccountBalanceSlot> slots, long total) {
+        long share = total / slots.size();
+        long remainder = total % slots.size();
+        for (AccountBalanceSlot slot : slots) {
+            slot.setBalance(share + (remainder-- > 0 ? 1 : 0));
+        }
+    }
+}
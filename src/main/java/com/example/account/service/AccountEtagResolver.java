@@ -0,0 +1,183 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountInfo;
+import com.example.account.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 계좌 조회와 계좌 목록 응답의 ETag 를 Redis 에 두어서 바뀌지 않은 조회는 DB 를 읽지 않고 304 로 돌려준다
+ * 계좌를 바꾸는 쪽이 커밋 뒤에 계좌와 사용자의 ETag 를 새 값으로 덮어쓰고, 조회는 Redis 값을 먼저 읽은 뒤 DB 를 읽으므로
+ * 응답 본문은 항상 함께 준 ETag 보다 같거나 새로운 상태다
+ * Redis 에 값이 없으면 계좌 버전으로 만든 ETag 를 없을 때만 넣는다, 그 사이 다른 값이 들어가 있으면 ETag 를 주지 않는다
+ * 덮어쓰기가 실패하면 TTL 이 지날 때까지 이전 ETag 가 남으므로 TTL 을 짧게 둔다
+ * Redis 를 쓰지 않거나 Redis 오류가 나면 매번 DB 의 계좌 버전으로 만든다
+ * 분할된 계좌는 슬롯 출금이 버전을 올리지 않아서 슬롯 잔액 합을 함께 넣는다
+ */
+@Slf4j
+@Component
+public class AccountEtagResolver {
+    private static final String ACCOUNT_PREFIX = "account-etag:";
+    private static final String USER_PREFIX = "user-accounts-etag:";
+
+    private final AccountRepository accountRepository;
+    private final Duration ttl;
+    private final RedissonClient redissonClient;
+
+    public AccountEtagResolver(
+            AccountRepository accountRepository,
+            @Value("${account.etag.redis-enabled:true}") boolean redisEnabled,
+            @Value("${account.etag.ttl:5m}") Duration ttl,
+            ObjectProvider<RedissonClient> redissonClient) {
+        this.accountRepository = accountRepository;
+        this.ttl = ttl;
+        this.redissonClient = redisEnabled ? redissonClient.getIfAvailable() : null;
+    }
+
+    /**
+     * Redis 에 있으면 DB 를 읽지 않는다, 계좌가 없으면 빈 값이다
+     */
+    public Optional<String> accountEtag(Long accountId) {
+        Optional<String> cached = find(ACCOUNT_PREFIX + accountId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        return accountRepository.findVersionViewById(accountId)
+                .map(view -> etagOf(tokenOf(view.getId(), view.getVersion(), view.getSlotBalance())))
+                .filter(etag -> offer(ACCOUNT_PREFIX + accountId, etag));
+    }
+
+    /**
+     * Redis 에 있는 계좌 목록 ETag, 없으면 목록을 읽어서 {@link #userEtag(Long, List)} 로 만든다
+     */
+    public Optional<String> cachedUserEtag(Long userId) {
+        return find(USER_PREFIX + userId);
+    }
+
+    /**
+     * 계좌가 없는 사용자와 없는 사용자를 구분하지 않으려고 계좌가 하나도 없으면 빈 값이다
+     */
+    public Optional<String> userEtag(Long userId, List<AccountInfo> accountInfos) {
+        if (accountInfos.isEmpty()) {
+            return Optional.empty();
+        }
+        String etag = etagOf(accountInfos.stream()
+                .map(info -> tokenOf(info.getId(), info.getVersion(), info.getSlotBalance()))
+                .collect(Collectors.joining("|")));
+        return offer(USER_PREFIX + userId, etag) ? Optional.of(etag) : Optional.empty();
+    }
+
+    /**
+     * 계좌 잔액이나 상태, 사용자의 계좌 목록이 바뀌면 호출한다, 커밋되면 두 ETag 를 새 값으로 바꾼다
+     */
+    public void changedAfterCommit(Long accountId, Long userId) {
+        if (redissonClient == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            renew(accountId, userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                renew(accountId, userId);
+            }
+        });
+    }
+
+    /**
+     * If-None-Match 에 etag 가 있으면 true, 약한 비교를 한다
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || stripWeak(trimmed).equals(stripWeak(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Optional<String> find(String key) {
+        if (redissonClient == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(redissonClient
+                    .<String>getBucket(key, StringCodec.INSTANCE).get());
+        } catch (Exception e) {
+            log.error("Account etag redis lookup failed. key : {}", key, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 넣었거나 Redis 를 쓰지 않으면 true, 다른 값이 이미 있으면 그 값이 더 새로울 수 있어서 false
+     */
+    private boolean offer(String key, String etag) {
+        if (redissonClient == null) {
+            return true;
+        }
+        try {
+            return redissonClient.<String>getBucket(key, StringCodec.INSTANCE)
+                    .setIfAbsent(etag, ttl);
+        } catch (Exception e) {
+            log.error("Account etag redis store failed. key : {}", key, e);
+            return true;
+        }
+    }
+
+    /**
+     * 두 키를 한 번에 보낸다, 요청 스레드가 다음 조회 전에 새 값을 보도록 응답을 기다린다
+     */
+    private void renew(Long accountId, Long userId) {
+        try {
+            RBatch batch = redissonClient.createBatch();
+            batch.<String>getBucket(ACCOUNT_PREFIX + accountId, StringCodec.INSTANCE)
+                    .setAsync(newEtag(), ttl);
+            if (userId != null) {
+                batch.<String>getBucket(USER_PREFIX + userId, StringCodec.INSTANCE)
+                        .setAsync(newEtag(), ttl);
+            }
+            batch.execute();
+        } catch (Exception e) {
+            log.error("Account etag redis renew failed. accountId : {}, userId : {}",
+                    accountId, userId, e);
+        }
+    }
+
+    private static String newEtag() {
+        return "\"" + UUID.randomUUID().toString().replace("-", "") + "\"";
+    }
+
+    private static String tokenOf(Long id, Long version, Long slotBalance) {
+        return id + ":" + version + ":" + slotBalance;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String etagOf(String content) {
+        return "\"" + DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.account.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 같은 노드 안의 경쟁 요청을 메모리에서 줄 세우기 위한 계좌번호 기반 스트라이프 락
+ * Redis 락 앞단에서 먼저 잡는다
+ */
+@Component
+public class AccountLocalLock {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocalLock(
+            @Value("${account.lock.local-stripes:1024}") int stripeCount,
+            @Value("${account.lock.local-fair:false}") boolean fair) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock(fair);
+        }
+    }
+
+    public boolean tryLock(String accountNumber, long waitTime, TimeUnit unit)
+            throws InterruptedException {
+        return stripe(accountNumber).tryLock(waitTime, unit);
+    }
+
+    public void unlock(String accountNumber) {
+        ReentrantLock lock = stripe(accountNumber);
+        if (lock.isHeldByCurrentThread()) {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 여러 계좌의 락을 겹쳐 잡을 때의 순서, 스트라이프 번호 순서로 잡고 같은 스트라이프면 계좌번호 순서로 잡는다
+     * 스트라이프는 계좌번호 순서와 무관하므로 계좌번호 순서만 따르면 두 스트라이프를 서로 반대로 잡을 수 있다
+     * 모든 노드의 스트라이프 수가 같아야 분산 락도 모든 노드에서 같은 순서로 잡힌다
+     */
+    public Comparator<String> lockOrder() {
+        return Comparator.comparingInt(this::stripeIndex)
+                .thenComparing(Comparator.naturalOrder());
+    }
+
+    private ReentrantLock stripe(String accountNumber) {
+        return stripes[stripeIndex(accountNumber)];
+    }
+
+    private int stripeIndex(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+
+/**
+ * 계좌 락 구현체
+ * account.lock.provider 값(redisson, local, jdbc)으로 하나가 선택된다
+ * 스레드에 묶이지 않는 락은 {@link AsyncAccountLockProvider} 도 구현한다
+ */
+public interface AccountLockProvider {
+    /**
+     * 락을 얻지 못하면 ACCOUNT_TRANSACTION_LOCK 으로 AccountException 을 던진다
+     */
+    void lock(String accountNumber, LockPolicy policy);
+
+    void unlock(String accountNumber, LockPolicy policy);
+}
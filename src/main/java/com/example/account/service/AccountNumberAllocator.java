@@ -0,0 +1,67 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_NUMBER_EXHAUSTED;
+
+/**
+ * 계좌번호를 blockSize 개씩 DB 시퀀스로 예약해두고 메모리에서 하나씩 나눠준다
+ * 시퀀스 값 n 은 1000000000 + n * blockSize 부터 blockSize 개의 번호를 뜻한다
+ * 노드마다 다른 구간을 받으므로 겹치지 않고, 쓰지 못한 번호는 재시작하면 버려진다
+ * block-size 를 바꾸면 이전 구간과 겹칠 수 있으므로 운영 중에는 바꾸지 않는다
+ */
+@Slf4j
+@Component
+public class AccountNumberAllocator {
+    private static final long FIRST_ACCOUNT_NUMBER = 1_000_000_000L;
+    private static final long LAST_ACCOUNT_NUMBER = 9_999_999_999L;
+
+    private final AccountRepository accountRepository;
+    private final int blockSize;
+
+    // this 로 보호한다
+    private long next;
+    private long end;
+
+    public AccountNumberAllocator(
+            AccountRepository accountRepository,
+            @Value("${account.number.block-size:100}") int blockSize) {
+        this.accountRepository = accountRepository;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    public synchronized String allocate() {
+        return nextNumber();
+    }
+
+    /**
+     * count 개를 한 번에 받는다, 모자란 구간만큼만 시퀀스를 더 읽는다
+     */
+    public synchronized List<String> allocate(int count) {
+        List<String> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(nextNumber());
+        }
+        return numbers;
+    }
+
+    private String nextNumber() {
+        if (next >= end) {
+            long block = accountRepository.nextAccountNumberBlock();
+            next = FIRST_ACCOUNT_NUMBER + block * blockSize;
+            end = next + blockSize;
+            log.debug("Account number block reserved. from : {}, to : {}", next, end - 1);
+        }
+        if (next > LAST_ACCOUNT_NUMBER) {
+            throw new AccountException(ACCOUNT_NUMBER_EXHAUSTED);
+        }
+        return Long.toString(next++);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.account.service;
+
+import com.example.account.dto.PartitionQueueInfo;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 계좌번호를 고정된 파티션에 해시해 파티션마다 하나뿐인 작업 스레드에서 차례로 실행한다
+ * 같은 계좌의 잔액 변경은 같은 스레드에서 직렬로 실행되므로 락이 필요 없다
+ * 한 JVM 안에서만 직렬화되므로 여러 노드를 띄울 때는 Account @Version 이 최종 안전장치다
+ */
+@Slf4j
+@Component
+public class AccountPartitionExecutor {
+    private final Partition[] partitions;
+    private final int mask;
+    private final ThreadLocal<Integer> currentPartition = new ThreadLocal<>();
+
+    public AccountPartitionExecutor(
+            @Value("${account.lock.partition.count:16}") int partitionCount,
+            @Value("${account.lock.partition.queue-capacity:1000}") int queueCapacity) {
+        int size = Integer.highestOneBit(Math.max(1, partitionCount - 1)) << 1;
+        this.partitions = new Partition[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            partitions[i] = new Partition(i, queueCapacity);
+        }
+    }
+
+    /**
+     * 큐가 가득 찼거나 maxQueueWaitMillis 보다 오래 큐에 머문 작업은 ACCOUNT_TRANSACTION_LOCK 으로 실패한다
+     */
+    public CompletableFuture<Object> submit(String accountNumber, long maxQueueWaitMillis,
+                                            PartitionedBody body) {
+        int index = partitionOf(accountNumber);
+        Partition partition = partitions[index];
+        CompletableFuture<Object> result = new CompletableFuture<>();
+
+        // 이미 같은 파티션 스레드 안이면 큐에 넣지 않고 바로 실행한다
+        if (Integer.valueOf(index).equals(currentPartition.get())) {
+            run(body, result);
+            return result;
+        }
+
+        long deadline = maxQueueWaitMillis > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis)
+                : Long.MAX_VALUE;
+        try {
+            partition.worker.execute(() -> {
+                if (System.nanoTime() - deadline > 0) {
+                    partition.expired.increment();
+                    result.completeExceptionally(
+                            new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+                    return;
+                }
+                currentPartition.set(index);
+                try {
+                    run(body, result);
+                } finally {
+                    currentPartition.remove();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            partition.rejected.increment();
+            log.warn("Partition queue is full. accountNumber : {}, partition : {}",
+                    accountNumber, index);
+            result.completeExceptionally(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+        }
+        return result;
+    }
+
+    public List<PartitionQueueInfo> getQueueInfos() {
+        List<PartitionQueueInfo> infos = new ArrayList<>(partitions.length);
+        for (Partition partition : partitions) {
+            infos.add(PartitionQueueInfo.builder()
+                    .partition(partition.index)
+                    .queueDepth(partition.worker.getQueue().size())
+                    .remainingCapacity(partition.worker.getQueue().remainingCapacity())
+                    .completedCount(partition.worker.getCompletedTaskCount())
+                    .rejectedCount(partition.rejected.sum())
+                    .expiredCount(partition.expired.sum())
+                    .build());
+        }
+        return infos;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Partition partition : partitions) {
+            partition.worker.shutdown();
+        }
+        for (Partition partition : partitions) {
+            partition.worker.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    int partitionOf(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static void run(PartitionedBody body, CompletableFuture<Object> result) {
+        try {
+            result.complete(body.proceed());
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+    }
+
+    private static class Partition {
+        private final int index;
+        private final ThreadPoolExecutor worker;
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder expired = new LongAdder();
+
+        Partition(int index, int queueCapacity) {
+            this.index = index;
+            this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "account-partition-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    @FunctionalInterface
+    public interface PartitionedBody {
+        Object proceed() throws Throwable;
+    }
+}
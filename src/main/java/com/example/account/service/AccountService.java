@@ -2,7 +2,11 @@ package com.example.account.service;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountDetail;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.CreateAccount;
+import com.example.account.dto.CreateAccountBulk;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
@@ -13,8 +17,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static com.example.account.type.AccountStatus.IN_USE;
 import static com.example.account.type.ErrorCode.USER_NOT_FOUND;
@@ -22,8 +31,13 @@ import static com.example.account.type.ErrorCode.USER_NOT_FOUND;
 @Service
 @RequiredArgsConstructor
 public class AccountService {
+    private static final int MAX_ACCOUNT_PER_USER = 10;
+
     private final AccountRepository accountRepository;
     private final AccountUserRepository accountUserRepository;
+    private final AccountBalanceShardService accountBalanceShardService;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final AccountEtagResolver accountEtagResolver;
 
     /**
      * 사용자가 있는지 확인
@@ -35,33 +49,107 @@ public class AccountService {
         AccountUser accountUser = getAccountUser(userId);
         validateCreateAccount(accountUser);
 
-        String newAccountNumber = accountRepository.findFirstByOrderByIdDesc()
-                .map(
-                        account -> (Integer.parseInt(account.getAccountNumber())) + 1 + ""
-                ).orElse("1000000000");
-        System.out.println("accountUserId" + accountUser.getId());
-        return AccountDto.fromEntity(
-                accountRepository.save(Account.builder()
-                        .accountUser(accountUser)
-                        .accountStatus(IN_USE)
-                        .accountNumber(newAccountNumber)
-                        .balance(initialBalance)
-                        .registeredAt(LocalDateTime.now())
-                        .build())
-        );
+        String newAccountNumber = accountNumberAllocator.allocate();
+        Account account = accountRepository.save(Account.builder()
+                .accountUser(accountUser)
+                .accountStatus(IN_USE)
+                .accountNumber(newAccountNumber)
+                .balance(initialBalance)
+                .registeredAt(LocalDateTime.now())
+                .build());
+        accountEtagResolver.changedAfterCommit(account.getId(), userId);
+        return AccountDto.fromEntity(account);
+    }
+
+    /**
+     * 여러 사용자의 계좌를 한 트랜잭션에서 만든다
+     * 사용자와 계좌 수는 한 번의 조회로 잠그고 읽으며, 계좌번호는 구간 단위로 받고 계좌는 묶어서 저장한다
+     * 사용자가 없거나 계좌 수를 넘는 항목만 실패로 돌려준다, 결과는 요청 순서대로다
+     */
+    @Transactional
+    public List<CreateAccountBulk.Result> createAccounts(List<CreateAccount.Request> requests) {
+        Map<Long, AccountUser> users = new HashMap<>();
+        accountUserRepository.findAllForUpdate(requests.stream()
+                        .map(CreateAccount.Request::getUserId)
+                        .collect(Collectors.toSet()))
+                .forEach(user -> users.put(user.getId(), user));
+
+        List<CreateAccountBulk.Result> results = new ArrayList<>(requests.size());
+        List<CreateAccount.Request> accepted = new ArrayList<>(requests.size());
+        for (CreateAccount.Request request : requests) {
+            AccountUser accountUser = users.get(request.getUserId());
+            ErrorCode errorCode = null;
+            if (accountUser == null) {
+                errorCode = USER_NOT_FOUND;
+            } else if (accountCountOf(accountUser) >= MAX_ACCOUNT_PER_USER) {
+                errorCode = ErrorCode.MAX_ACCOUNT_PER_USER_10;
+            } else {
+                accountUser.setAccountCount(accountCountOf(accountUser) + 1);
+                accepted.add(request);
+            }
+            results.add(CreateAccountBulk.Result.builder()
+                    .userId(request.getUserId())
+                    .errorCode(errorCode)
+                    .build());
+        }
+
+        Iterator<String> accountNumbers = accountNumberAllocator.allocate(accepted.size()).iterator();
+        LocalDateTime now = LocalDateTime.now();
+        List<Account> accounts = new ArrayList<>(accepted.size());
+        for (CreateAccount.Request request : accepted) {
+            accounts.add(Account.builder()
+                    .accountUser(users.get(request.getUserId()))
+                    .accountStatus(IN_USE)
+                    .accountNumber(accountNumbers.next())
+                    .balance(request.getInitialBalance())
+                    .registeredAt(now)
+                    .build());
+        }
+        accountRepository.saveAll(accounts);
+        accounts.forEach(account -> accountEtagResolver.changedAfterCommit(
+                account.getId(), account.getAccountUser().getId()));
+
+        Iterator<Account> saved = accounts.iterator();
+        for (CreateAccountBulk.Result result : results) {
+            if (result.getErrorCode() == null) {
+                result.setAccountNumber(saved.next().getAccountNumber());
+            }
+        }
+        return results;
     }
 
+    private static int accountCountOf(AccountUser accountUser) {
+        return accountUser.getAccountCount() == null ? 0 : accountUser.getAccountCount();
+    }
+
+    /**
+     * 계좌 수 확인과 증가를 조건부 UPDATE 한 번으로 한다
+     */
     private void validateCreateAccount(AccountUser accountUser) {
-        if (accountRepository.countByAccountUser(accountUser) == 10) {
+        if (accountUserRepository.incrementAccountCount(
+                accountUser.getId(), MAX_ACCOUNT_PER_USER) == 0) {
             throw new AccountException(ErrorCode.MAX_ACCOUNT_PER_USER_10);
         }
     }
 
-    @Transactional
-    public Account getAccount(Long id) {
-        return accountRepository.findById(id).get();
+    /**
+     * 사용자는 프록시의 id 만 쓰므로 사용자 테이블은 읽지 않는다
+     */
+    @Transactional(readOnly = true)
+    public AccountDetail getAccount(Long id) {
+        Account account = accountRepository.findById(id)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        return AccountDetail.builder()
+                .userId(account.getAccountUser().getId())
+                .accountNumber(account.getAccountNumber())
+                .accountStatus(account.getAccountStatus())
+                .balance(balanceOf(account))
+                .registeredAt(account.getRegisteredAt())
+                .unRegisteredAt(account.getUnRegisteredAt())
+                .build();
     }
 
+    @Transactional
     public AccountDto deleteAccount(Long userId, String accountNumber) {
         AccountUser accountUser = getAccountUser(userId);
         Account account = accountRepository.findByAccountNumber(accountNumber).orElseThrow(
@@ -73,6 +161,8 @@ public class AccountService {
         account.setUnRegisteredAt(LocalDateTime.now());
 
         accountRepository.save(account);
+        accountUserRepository.decrementAccountCount(accountUser.getId());
+        accountEtagResolver.changedAfterCommit(account.getId(), accountUser.getId());
 
         return AccountDto.fromEntity(account);
     }
@@ -84,17 +174,26 @@ public class AccountService {
         if (account.getAccountStatus() == AccountStatus.UNREGISTERED) {
             throw new AccountException(ErrorCode.USER_ALREADY_UNREGISTERED);
         }
-        if (account.getBalance() > 0) {
+        if (balanceOf(account) > 0) {
             throw new AccountException(ErrorCode.BALANCE_NOT_EMPTY);
         }
     }
 
-    public List<AccountDto> getAccountsByUserId(Long userId) {
-        AccountUser accountUser = getAccountUser(userId);
-
-        List<Account> accounts = accountRepository.findByAccountUser(accountUser);
+    public List<AccountInfo> getAccountsByUserId(Long userId) {
+        List<AccountInfo> accountInfos = accountRepository.findAccountInfosByUserId(userId);
+        if (accountInfos.isEmpty()) {
+            throw new AccountException(USER_NOT_FOUND);
+        }
+        // 계좌가 없는 사용자는 계좌번호가 null 인 행만 온다
+        return accountInfos.stream()
+                .filter(accountInfo -> accountInfo.getAccountNumber() != null)
+                .toList();
+    }
 
-        return accounts.stream().map(AccountDto::fromEntity).toList();
+    private Long balanceOf(Account account) {
+        return account.isSharded()
+                ? accountBalanceShardService.getBalance(account)
+                : account.getBalance();
     }
 
     private AccountUser getAccountUser(Long userId) {
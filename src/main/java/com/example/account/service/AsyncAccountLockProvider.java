@@ -0,0 +1,18 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 스레드에 묶이지 않고 비동기로 잡고 풀 수 있는 계좌 락
+ * 이 인터페이스를 구현하지 않은 락은 비동기 핸들러에서도 작업 스레드 하나에서 lock / unlock 한다
+ */
+public interface AsyncAccountLockProvider extends AccountLockProvider {
+    /**
+     * 완료 값은 unlockAsync 에 넘길 락 소유자 id
+     */
+    CompletableFuture<Long> lockAsync(String accountNumber, LockPolicy policy);
+
+    CompletableFuture<Void> unlockAsync(String accountNumber, LockPolicy policy, long ownerId);
+}
@@ -0,0 +1,102 @@
+package com.example.account.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 항목 수 상한과 TTL 이 있는 메모리 캐시
+ * 모든 항목의 TTL 이 같아서 넣은 순서가 곧 만료 순서이므로 상한을 넘으면 가장 먼저 넣은 항목을 버린다
+ */
+public class BoundedTtlCache<K, V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedTtlCache(int maxEntries, long ttl, TimeUnit unit) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    public Optional<V> get(K key) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt >= 0) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(entry.value);
+        }
+    }
+
+    public void put(K key, V value) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            // 다시 넣은 항목은 맨 뒤로 보내서 만료 순서를 유지한다
+            entries.remove(key);
+            entries.put(key, new Entry<>(value, now + ttlNanos));
+            purge(now);
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    private void purge(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> eldest = iterator.next().getValue();
+            if (now - eldest.expiresAt >= 0) {
+                expirations.increment();
+            } else if (entries.size() > maxEntries) {
+                evictions.increment();
+            } else {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.account.service;
+
+import com.example.account.dto.FailedTransactionQueueInfo;
+import com.example.account.dto.FailedTransactionRecord;
+import com.example.account.type.TransactionType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 실패 거래 기록을 요청 스레드에서 바로 쓰지 않고 큐에 넣어 작업 스레드가 묶어서 저장한다
+ * 큐가 가득 차면 기록을 버리고 개수만 센다, 종료 시에는 남은 기록을 모두 저장한다
+ */
+@Slf4j
+@Component
+public class FailedTransactionRecorder {
+    private final TransactionService transactionService;
+    private final BlockingQueue<FailedTransactionRecord> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder writeFailed = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public FailedTransactionRecorder(
+            TransactionService transactionService,
+            @Value("${account.failed-transaction.queue-capacity:10000}") int queueCapacity,
+            @Value("${account.failed-transaction.batch-size:500}") int batchSize,
+            @Value("${account.failed-transaction.flush-interval-millis:200}") long flushIntervalMillis) {
+        this.transactionService = transactionService;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "failed-transaction-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void record(TransactionType transactionType, String accountNumber, Long amount) {
+        FailedTransactionRecord failedRecord = FailedTransactionRecord.builder()
+                .transactionType(transactionType)
+                .accountNumber(accountNumber)
+                .amount(amount)
+                .transactedAt(LocalDateTime.now())
+                .build();
+        if (queue.offer(failedRecord)) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+            log.warn("Failed transaction queue is full. accountNumber : {}, dropped : {}",
+                    accountNumber, dropped.sum());
+        }
+    }
+
+    public FailedTransactionQueueInfo getQueueInfo() {
+        return FailedTransactionQueueInfo.builder()
+                .queueDepth(queue.size())
+                .remainingCapacity(queue.remainingCapacity())
+                .recordedCount(recorded.sum())
+                .writtenCount(written.sum())
+                .droppedCount(dropped.sum())
+                .writeFailedCount(writeFailed.sum())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            // 저장 중인 묶음은 끝까지 쓰도록 인터럽트하지 않는다
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // 작업 스레드가 끝난 뒤 남은 기록을 저장한다
+        while (!queue.isEmpty()) {
+            flush();
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                FailedTransactionRecord first =
+                        queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<FailedTransactionRecord> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush() {
+        List<FailedTransactionRecord> batch = new ArrayList<>(batchSize);
+        queue.drainTo(batch, batchSize);
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<FailedTransactionRecord> batch) {
+        try {
+            transactionService.saveFailedTransactions(batch);
+            written.add(batch.size());
+        } catch (Exception e) {
+            writeFailed.add(batch.size());
+            log.error("Failed to write failed transactions. size : {}", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.account.service;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@Profile("fault-injection")
+@RequiredArgsConstructor
+public class FaultInjectionAspect {
+    private final FaultInjector faultInjector;
+
+    /**
+     * 규칙 이름은 TransactionService 메서드 이름
+     */
+    @Around("execution(public * com.example.account.service.TransactionService.*(..))")
+    public Object aroundTransactionService(ProceedingJoinPoint pjp) throws Throwable {
+        faultInjector.inject(pjp.getSignature().getName());
+        return pjp.proceed();
+    }
+
+    @Around("execution(* com.example.account.service.AccountLockProvider+.lock*(..))")
+    public Object aroundLock(ProceedingJoinPoint pjp) throws Throwable {
+        faultInjector.inject("lock");
+        return pjp.proceed();
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object aroundRepository(ProceedingJoinPoint pjp) throws Throwable {
+        faultInjector.inject("db");
+        return pjp.proceed();
+    }
+}
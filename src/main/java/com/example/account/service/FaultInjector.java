@@ -0,0 +1,60 @@
+package com.example.account.service;
+
+import com.example.account.config.FaultInjectionProperties;
+import com.example.account.exception.AccountException;
+import com.example.account.type.LatencyDistribution;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 대상 이름에 걸린 규칙대로 지연을 넣거나 예외를 던진다
+ * 느린 Redis, DB 상황을 스테이징에서 재현하기 위한 용도로 fault-injection 프로필에서만 등록된다
+ */
+@Slf4j
+@Component
+@Profile("fault-injection")
+@RequiredArgsConstructor
+public class FaultInjector {
+    private final FaultInjectionProperties faultInjectionProperties;
+
+    public void inject(String target) {
+        FaultInjectionProperties.Rule rule = faultInjectionProperties.getRules().get(target);
+        if (rule == null) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (rule.getLatencyMillis() > 0 && random.nextDouble() < rule.getLatencyRate()) {
+            long delay = latencyOf(rule, random);
+            log.debug("Injecting latency. target : {}, delay : {}ms", target, delay);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (rule.getErrorRate() > 0 && random.nextDouble() < rule.getErrorRate()) {
+            log.warn("Injecting failure. target : {}, errorCode : {}", target, rule.getErrorCode());
+            throw new AccountException(rule.getErrorCode());
+        }
+    }
+
+    static long latencyOf(FaultInjectionProperties.Rule rule, Random random) {
+        long latency = switch (rule.getDistribution() == null
+                ? LatencyDistribution.FIXED : rule.getDistribution()) {
+            case FIXED -> rule.getLatencyMillis();
+            case UNIFORM -> rule.getMinLatencyMillis() + (long) (random.nextDouble()
+                    * Math.max(0L, rule.getLatencyMillis() - rule.getMinLatencyMillis()));
+            case EXPONENTIAL -> (long) (-Math.log(1.0 - random.nextDouble())
+                    * rule.getLatencyMillis());
+        };
+        return rule.getMaxLatencyMillis() > 0
+                ? Math.min(latency, rule.getMaxLatencyMillis())
+                : latency;
+    }
+}
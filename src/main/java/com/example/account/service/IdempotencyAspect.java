@@ -0,0 +1,148 @@
+package com.example.account.service;
+
+import com.example.account.aop.IdempotencyScope;
+import com.example.account.aop.Idempotent;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 계좌 락보다 먼저 실행되어 이미 처리한 멱등키 요청은 락과 DB 없이 처음 응답을 돌려준다
+ * 성공한 응답을 저장하고, 잔액 변경 전에 거절된 요청(AccountException)만 같은 키로 다시 시도할 수 있다
+ * 그 밖의 실패는 커밋 뒤에 났을 수 있으므로 오류 코드를 저장해서 같은 키로 다시 보내면 같은 오류를 돌려준다
+ * 키는 요청의 사용자, 계좌 범위로 나누고, 같은 키에 본문이 다른 요청은 거절한다
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class IdempotencyAspect {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    @Around("@annotation(idempotent)")
+    public Object aroundIdempotent(ProceedingJoinPoint pjp, Idempotent idempotent)
+            throws Throwable {
+        String idempotencyKey = currentIdempotencyKey();
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return pjp.proceed();
+        }
+        String key = idempotent.value() + ":" + scopeOf(pjp.getArgs()) + idempotencyKey;
+        String requestHash = hashOf(pjp.getArgs());
+        boolean async = CompletableFuture.class.isAssignableFrom(
+                ((MethodSignature) pjp.getSignature()).getReturnType());
+
+        Optional<IdempotencyStore.StoredResult> stored = idempotencyStore.find(key);
+        if (stored.isPresent()) {
+            if (!requestHash.equals(stored.get().getRequestHash())) {
+                log.warn("Idempotency key reused with a different request. key : {}", key);
+                throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+            }
+            if (stored.get().getErrorCode() != null) {
+                log.info("Replaying idempotent error. key : {}", key);
+                throw new AccountException(stored.get().getErrorCode());
+            }
+            log.info("Replaying idempotent response. key : {}", key);
+            Object response = stored.get().getResponse();
+            return async ? CompletableFuture.completedFuture(response) : response;
+        }
+        if (!idempotencyStore.begin(key)) {
+            throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+        }
+
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable t) {
+            release(key, requestHash, t);
+            throw t;
+        }
+
+        if (async) {
+            ((CompletableFuture<?>) result).whenComplete((value, error) -> {
+                if (error == null) {
+                    idempotencyStore.complete(key, requestHash, value);
+                } else {
+                    release(key, requestHash, error instanceof CompletionException
+                            && error.getCause() != null ? error.getCause() : error);
+                }
+            });
+        } else {
+            idempotencyStore.complete(key, requestHash, result);
+        }
+        return result;
+    }
+
+    /**
+     * AccountException 은 잔액 변경 전에 거절한 요청이므로 키를 풀어 다시 시도하게 한다
+     * 결과를 모르는 실패와 예상하지 못한 예외는 커밋 뒤에 났을 수 있으므로 응답과 같은 오류 코드로 키를 닫는다
+     */
+    private void release(String key, String requestHash, Throwable t) {
+        if (t instanceof AccountException accountException
+                && accountException.getErrorCode() != ErrorCode.TRANSACTION_OUTCOME_UNKNOWN) {
+            idempotencyStore.abort(key);
+            return;
+        }
+        log.error("Idempotent request failed after it may have committed. key : {}", key);
+        idempotencyStore.fail(key, requestHash, errorCodeOf(t));
+    }
+
+    /**
+     * GlobalException 이 응답하는 오류 코드와 맞춘다
+     */
+    private static ErrorCode errorCodeOf(Throwable t) {
+        if (t instanceof AccountException accountException) {
+            return accountException.getErrorCode();
+        }
+        if (t instanceof DataIntegrityViolationException) {
+            return ErrorCode.INVALID_REQUEST;
+        }
+        return ErrorCode.INTERNAL_SERVER_ERROR;
+    }
+
+    private static String scopeOf(Object[] args) {
+        StringBuilder scope = new StringBuilder();
+        for (Object arg : args) {
+            if (arg instanceof IdempotencyScope idempotencyScope) {
+                scope.append(idempotencyScope.idempotencyScope()).append(':');
+            }
+        }
+        return scope.toString();
+    }
+
+    private String hashOf(Object[] args) throws JsonProcessingException {
+        return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(args));
+    }
+
+    private static String currentIdempotencyKey() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        return request.getHeader(IDEMPOTENCY_KEY_HEADER);
+    }
+}
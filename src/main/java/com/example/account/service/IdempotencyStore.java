@@ -0,0 +1,150 @@
+package com.example.account.service;
+
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.JsonJacksonCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 멱등키별 처리 결과 저장소, 결과와 함께 요청 본문의 해시를 저장한다
+ * 결과 대신 오류 코드를 저장한 키는 같은 키로 다시 보내도 그 오류를 그대로 돌려준다
+ * 메모리에 상한과 TTL 을 두고 보관하고, Redis 를 쓰도록 켜면 노드 간에도 결과와 처리 중 표시를 공유한다
+ * Redis 오류는 기록만 하고 메모리 저장소로 계속 처리한다
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private static final String RESULT_PREFIX = "idempotency:";
+    private static final String PENDING_PREFIX = "idempotency:pending:";
+
+    private final BoundedTtlCache<String, StoredResult> results;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Duration ttl;
+    private final Duration pendingTimeout;
+    private final RedissonClient redissonClient;
+    private final Codec codec;
+
+    public IdempotencyStore(
+            @Value("${account.idempotency.max-entries:100000}") int maxEntries,
+            @Value("${account.idempotency.ttl:24h}") Duration ttl,
+            @Value("${account.idempotency.pending-timeout:30s}") Duration pendingTimeout,
+            @Value("${account.idempotency.redis-enabled:false}") boolean redisEnabled,
+            ObjectProvider<RedissonClient> redissonClient,
+            ObjectProvider<ObjectMapper> objectMapper) {
+        this.results = new BoundedTtlCache<>(maxEntries, ttl.toMillis(), TimeUnit.MILLISECONDS);
+        this.ttl = ttl;
+        this.pendingTimeout = pendingTimeout;
+        this.redissonClient = redisEnabled ? redissonClient.getIfAvailable() : null;
+        this.codec = this.redissonClient == null ? null
+                : new JsonJacksonCodec(objectMapper.getIfAvailable(ObjectMapper::new));
+        if (redisEnabled && this.redissonClient == null) {
+            log.warn("Idempotency redis tier requested but no RedissonClient is available.");
+        }
+    }
+
+    public Optional<StoredResult> find(String key) {
+        Optional<StoredResult> result = results.get(key);
+        if (result.isPresent() || redissonClient == null) {
+            return result;
+        }
+        try {
+            StoredResult remote = redissonClient.<StoredResult>getBucket(RESULT_PREFIX + key, codec)
+                    .get();
+            if (remote != null) {
+                results.put(key, remote);
+            }
+            return Optional.ofNullable(remote);
+        } catch (Exception e) {
+            log.error("Idempotency redis lookup failed. key : {}", key, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 같은 키가 처리 중이면 false
+     */
+    public boolean begin(String key) {
+        if (!pending.add(key)) {
+            return false;
+        }
+        if (redissonClient == null) {
+            return true;
+        }
+        try {
+            if (redissonClient.getBucket(PENDING_PREFIX + key, StringCodec.INSTANCE)
+                    .setIfAbsent("1", pendingTimeout)) {
+                return true;
+            }
+            pending.remove(key);
+            return false;
+        } catch (Exception e) {
+            log.error("Idempotency redis begin failed. key : {}", key, e);
+            return true;
+        }
+    }
+
+    public void complete(String key, String requestHash, Object response) {
+        store(key, new StoredResult(requestHash, response, null));
+    }
+
+    /**
+     * 잔액 변경이 커밋되었을 수 있는 실패, 같은 키로 다시 처리하지 않도록 오류 코드를 결과로 남긴다
+     */
+    public void fail(String key, String requestHash, ErrorCode errorCode) {
+        store(key, new StoredResult(requestHash, null, errorCode));
+    }
+
+    /**
+     * 실패한 요청은 저장하지 않고 같은 키로 다시 시도할 수 있게 한다
+     */
+    public void abort(String key) {
+        pending.remove(key);
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            redissonClient.getBucket(PENDING_PREFIX + key, StringCodec.INSTANCE).delete();
+        } catch (Exception e) {
+            log.error("Idempotency redis abort failed. key : {}", key, e);
+        }
+    }
+
+    private void store(String key, StoredResult result) {
+        results.put(key, result);
+        pending.remove(key);
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            redissonClient.getBucket(RESULT_PREFIX + key, codec).set(result, ttl);
+            redissonClient.getBucket(PENDING_PREFIX + key, StringCodec.INSTANCE).delete();
+        } catch (Exception e) {
+            log.error("Idempotency redis store failed. key : {}", key, e);
+        }
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StoredResult {
+        private String requestHash;
+        private Object response;
+        // null 이 아니면 response 대신 이 오류를 돌려준다
+        private ErrorCode errorCode;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Account 행에 SELECT ... FOR UPDATE 를 거는 DB 락
+ * 락을 잡은 트랜잭션 안에서 서비스 트랜잭션이 함께 실행되고 unlock 시점에 커밋된다
+ * 락 구간 안에서 롤백 표시가 된 트랜잭션은 unlock 시점에 롤백된다
+ * H2 는 lock timeout 힌트를 무시하므로 행을 잠그는 동안만 세션의 LOCK_TIMEOUT 을 waitTime 으로 바꾼다
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "account.lock.provider", havingValue = "jdbc")
+public class JdbcAccountLockProvider implements AccountLockProvider {
+    private static final String LOCK_TIMEOUT_HINT = "jakarta.persistence.lock.timeout";
+    private static final String H2_PRODUCT_NAME = "H2";
+
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+
+    private final ThreadLocal<Deque<TransactionStatus>> lockedTransactions =
+            ThreadLocal.withInitial(ArrayDeque::new);
+    private volatile Boolean h2;
+
+    @Override
+    public void lock(String accountNumber, LockPolicy policy) {
+        log.debug("Trying row lock for accountNumber : {}", accountNumber);
+
+        DefaultTransactionDefinition definition =
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRED);
+        if (!policy.isWatchdog()) {
+            definition.setTimeout((int) Math.max(1L, policy.getLeaseTime() / 1000L));
+        }
+        TransactionStatus status = transactionManager.getTransaction(definition);
+
+        long waitTime = Math.max(1L, policy.getWaitTime());
+        try {
+            TypedQuery<Account> query = entityManager.createQuery(
+                            "select a from Account a where a.accountNumber = :accountNumber",
+                            Account.class)
+                    .setParameter("accountNumber", accountNumber)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .setHint(LOCK_TIMEOUT_HINT, waitTime);
+            if (isH2()) {
+                withH2LockTimeout(waitTime, query::getResultList);
+            } else {
+                query.getResultList();
+            }
+        } catch (PersistenceException e) {
+            log.error("==================Row lock acquisition failed==================");
+            transactionManager.rollback(status);
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        lockedTransactions.get().push(status);
+    }
+
+    /**
+     * 세션 설정이라 커넥션 풀로 돌아간 뒤 다른 쿼리에 남지 않도록 원래 값으로 되돌린다
+     */
+    private void withH2LockTimeout(long waitTime, Runnable select) {
+        Session session = entityManager.unwrap(Session.class);
+        long previous = session.doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT LOCK_TIMEOUT()")) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        });
+        setH2LockTimeout(session, waitTime);
+        try {
+            select.run();
+        } finally {
+            setH2LockTimeout(session, previous);
+        }
+    }
+
+    private static void setH2LockTimeout(Session session, long millis) {
+        session.doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCK_TIMEOUT " + millis);
+            }
+        });
+    }
+
+    private boolean isH2() {
+        if (h2 == null) {
+            h2 = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    H2_PRODUCT_NAME.equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return h2;
+    }
+
+    @Override
+    public void unlock(String accountNumber, LockPolicy policy) {
+        log.debug("Row unlock for accountNumber : {}", accountNumber);
+        Deque<TransactionStatus> statuses = lockedTransactions.get();
+        TransactionStatus status = statuses.poll();
+        if (statuses.isEmpty()) {
+            lockedTransactions.remove();
+        }
+        if (status == null) {
+            return;
+        }
+
+        if (status.isRollbackOnly()) {
+            transactionManager.rollback(status);
+        } else {
+            transactionManager.commit(status);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 단일 노드 배포용 JVM 내부 락, Redis 없이 동작한다
+ * lease 는 없고 요청 스레드가 끝날 때 반드시 해제된다
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "account.lock.provider", havingValue = "local")
+public class LocalAccountLockProvider implements AccountLockProvider {
+    private final AccountLocalLock accountLocalLock;
+
+    @Override
+    public void lock(String accountNumber, LockPolicy policy) {
+        log.debug("Trying local lock for accountNumber : {}", accountNumber);
+        try {
+            if (!accountLocalLock.tryLock(
+                    accountNumber, policy.getWaitTime(), TimeUnit.MILLISECONDS)) {
+                log.error("==================Local lock acquisition failed==================");
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    @Override
+    public void unlock(String accountNumber, LockPolicy policy) {
+        log.debug("Local unlock for accountNumber : {}", accountNumber);
+        accountLocalLock.unlock(accountNumber);
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.account.service;
 
 
+import com.example.account.aop.AccountLock;
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.LockPolicy;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -9,24 +13,174 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 @Aspect
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class LockAopAspect {
-    private final LockService lockService;
+    private final AccountLockProvider accountLockProvider;
+    private final LockPolicyRegistry lockPolicyRegistry;
+    private final LockContentionMonitor lockContentionMonitor;
+    private final Executor accountLockExecutor;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final AccountPartitionExecutor accountPartitionExecutor;
+    private final AccountBalanceShardService accountBalanceShardService;
 
-    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)")
+    @Around(value = "@annotation(accountLock) && args(request)"
+            + " && !execution(java.util.concurrent.CompletableFuture *(..))",
+            argNames = "accountLock,request")
     public Object aroundMethod(
             ProceedingJoinPoint pjp,
+            AccountLock accountLock,
             AccountLockIdInterface request
     ) throws Throwable {
-        lockService.lock(request.getAccountNumber());
-        try {
+        if (accountBalanceShardService.isSharded(request.getAccountNumber())) {
+            // 분할된 계좌는 슬롯 조건부 UPDATE 로 잔액을 지키므로 계좌 락이 필요 없다
             return pjp.proceed();
-        } finally {
-            //lock해제
-            lockService.unlock(request.getAccountNumber());
         }
+        LockPolicy policy = resolvePolicy(pjp, accountLock);
+        if (policy.isLockFree()) {
+            return pjp.proceed();
+        }
+        if (policy.isOptimistic()) {
+            // 락 없이 실행하고 Account 버전 충돌이면 재시도
+            return optimisticRetryExecutor.execute(request.getAccountNumber(), pjp::proceed);
+        }
+        if (policy.isPartitioned()) {
+            return lockContentionMonitor.withPartition(accountPartitionExecutor,
+                    request.getAccountNumber(), policy, pjp::proceed);
+        }
+        return proceedLocked(request.getAccountNumber(), policy, pjp::proceed);
+    }
+
+    /**
+     * CompletableFuture 를 돌려주는 핸들러는 락을 기다리는 동안 요청 스레드를 잡지 않는다
+     */
+    @Around(value = "@annotation(accountLock) && args(request)"
+            + " && execution(java.util.concurrent.CompletableFuture *(..))",
+            argNames = "accountLock,request")
+    public Object aroundAsyncMethod(
+            ProceedingJoinPoint pjp,
+            AccountLock accountLock,
+            AccountLockIdInterface request
+    ) {
+        if (accountBalanceShardService.isSharded(request.getAccountNumber())) {
+            return proceedAsync(pjp);
+        }
+        LockPolicy policy = resolvePolicy(pjp, accountLock);
+        if (policy.isLockFree()) {
+            return proceedAsync(pjp);
+        }
+        String accountNumber = request.getAccountNumber();
+        CompletableFuture<Object> result = new CompletableFuture<>();
+
+        if (policy.isOptimistic()) {
+            execute(result, () -> {
+                try {
+                    result.complete(optimisticRetryExecutor.execute(accountNumber,
+                            () -> ((CompletableFuture<?>) pjp.proceed()).join()));
+                } catch (Throwable t) {
+                    result.completeExceptionally(unwrap(t));
+                }
+            });
+            return result;
+        }
+
+        if (policy.isPartitioned()) {
+            lockContentionMonitor.submitToPartition(accountPartitionExecutor, accountNumber,
+                            policy, () -> ((CompletableFuture<?>) pjp.proceed()).join())
+                    .whenComplete((value, error) -> {
+                        if (error != null) {
+                            result.completeExceptionally(unwrap(error));
+                        } else {
+                            result.complete(value);
+                        }
+                    });
+            return result;
+        }
+
+        if (!(accountLockProvider instanceof AsyncAccountLockProvider asyncLockProvider)) {
+            // 스레드에 묶인 락은 작업 스레드 하나에서 잠그고 푼다
+            execute(result, () -> {
+                try {
+                    result.complete(proceedLocked(accountNumber, policy,
+                            () -> ((CompletableFuture<?>) pjp.proceed()).join()));
+                } catch (Throwable t) {
+                    result.completeExceptionally(unwrap(t));
+                }
+            });
+            return result;
+        }
+
+        long waitStartedAt = lockContentionMonitor.startWaiting(accountNumber);
+        asyncLockProvider.lockAsync(accountNumber, policy).whenComplete((ownerId, lockError) -> {
+            if (lockError != null) {
+                lockContentionMonitor.failed(accountNumber, waitStartedAt);
+                result.completeExceptionally(unwrap(lockError));
+                return;
+            }
+            long acquiredAt = lockContentionMonitor.acquired(accountNumber, waitStartedAt);
+            Runnable release = () -> {
+                lockContentionMonitor.released(accountNumber, acquiredAt);
+                asyncLockProvider.unlockAsync(accountNumber, policy, ownerId)
+                        .exceptionally(unlockError -> {
+                            log.error("Async unlock failed. accountNumber : {}",
+                                    accountNumber, unlockError);
+                            return null;
+                        });
+            };
+
+            boolean submitted = execute(result, () -> proceedAsync(pjp).whenComplete((value, error) -> {
+                release.run();
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    result.complete(value);
+                }
+            }));
+            if (!submitted) {
+                release.run();
+            }
+        });
+        return result;
+    }
+
+    private LockPolicy resolvePolicy(ProceedingJoinPoint pjp, AccountLock accountLock) {
+        return lockPolicyRegistry.resolve(pjp.getSignature().getName(), accountLock);
+    }
+
+    private Object proceedLocked(String accountNumber, LockPolicy policy,
+                                 LockContentionMonitor.LockedBody<Object, Throwable> body)
+            throws Throwable {
+        return lockContentionMonitor.withLock(accountLockProvider, accountNumber, policy, body);
+    }
+
+    private boolean execute(CompletableFuture<Object> result, Runnable task) {
+        try {
+            accountLockExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.error("Account lock executor is saturated.");
+            result.completeExceptionally(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Object> proceedAsync(ProceedingJoinPoint pjp) {
+        try {
+            return (CompletableFuture<Object>) pjp.proceed();
+        } catch (Throwable t) {
+            return CompletableFuture.failedFuture(t);
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
     }
 }
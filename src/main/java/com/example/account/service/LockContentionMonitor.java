@@ -0,0 +1,251 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.dto.LockContentionInfo;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 계좌별 락 대기시간, 점유시간, 획득 실패, 현재 대기자 수를 모은다
+ * 추적하는 계좌 수가 상한을 넘으면 락을 기다리거나 잡은 스레드가 없는 오래된 계좌부터 버린다
+ * 모든 계좌가 사용 중일 때만 상한을 넘기며, 그 초과분은 동시에 락을 기다리거나 잡은 스레드 수를 넘지 않는다
+ */
+@Slf4j
+@Component
+public class LockContentionMonitor {
+    private static final int EVICTION_SAMPLES = 32;
+
+    private final int maxAccounts;
+    private final Map<String, AccountLockStats> stats = new ConcurrentHashMap<>();
+
+    public LockContentionMonitor(
+            @Value("${account.lock.metrics.max-accounts:10000}") int maxAccounts) {
+        this.maxAccounts = maxAccounts;
+    }
+
+    public long startWaiting(String accountNumber) {
+        statsOf(accountNumber).waiters.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public long acquired(String accountNumber, long waitStartedAt) {
+        long now = System.nanoTime();
+        AccountLockStats accountStats = statsOf(accountNumber);
+        // 푸는 동안 점유시간을 기록할 계좌를 버리지 않도록 대기자를 줄이기 전에 점유자를 늘린다
+        accountStats.holders.incrementAndGet();
+        decrement(accountStats.waiters);
+        accountStats.waitTime.record(now - waitStartedAt);
+        return now;
+    }
+
+    public void failed(String accountNumber, long waitStartedAt) {
+        AccountLockStats accountStats = statsOf(accountNumber);
+        decrement(accountStats.waiters);
+        accountStats.failures.increment();
+        accountStats.waitTime.record(System.nanoTime() - waitStartedAt);
+        log.warn("Lock acquisition failed. accountNumber : {}, waiters : {}",
+                accountNumber, accountStats.waiters.get());
+    }
+
+    /**
+     * 잡은 동안에는 버리지 않지만 그래도 없으면 새로 만들어서 점유시간을 잃지 않는다
+     */
+    public void released(String accountNumber, long acquiredAt) {
+        long now = System.nanoTime();
+        AccountLockStats accountStats =
+                stats.computeIfAbsent(accountNumber, key -> new AccountLockStats());
+        accountStats.holdTime.record(now - acquiredAt);
+        decrement(accountStats.holders);
+        accountStats.lastSeenAt = now;
+    }
+
+    /**
+     * 계좌 락을 잡고 body 를 실행한 뒤 푼다, 대기시간, 점유시간, 획득 실패를 함께 기록한다
+     * 락을 못 잡으면 body 는 실행하지 않고 lock 의 예외를 그대로 던진다
+     */
+    public <T, E extends Throwable> T withLock(AccountLockProvider accountLockProvider,
+                                               String accountNumber, LockPolicy policy,
+                                               LockedBody<T, E> body) throws E {
+        long waitStartedAt = startWaiting(accountNumber);
+        try {
+            accountLockProvider.lock(accountNumber, policy);
+        } catch (RuntimeException e) {
+            failed(accountNumber, waitStartedAt);
+            throw e;
+        }
+        long acquiredAt = acquired(accountNumber, waitStartedAt);
+
+        try {
+            return body.proceed();
+        } finally {
+            released(accountNumber, acquiredAt);
+            //lock해제
+            accountLockProvider.unlock(accountNumber, policy);
+        }
+    }
+
+    /**
+     * 계좌 파티션 작업 스레드에서 body 를 실행하고 결과를 기다린다, 큐 대기시간은 락 대기시간으로 기록한다
+     * 파티션 작업 스레드가 멈춰도 호출 스레드가 무한정 잡혀 있지 않도록 leaseTime 까지만 기다린다
+     * watchdog 정책은 leaseTime 이 없으므로 기본 정책의 leaseTime 을 쓴다
+     */
+    public Object withPartition(AccountPartitionExecutor accountPartitionExecutor,
+                                String accountNumber, LockPolicy policy,
+                                LockedBody<Object, Throwable> body) throws Throwable {
+        CompletableFuture<Object> result =
+                submitToPartition(accountPartitionExecutor, accountNumber, policy, body);
+        long timeout = policy.isWatchdog()
+                ? LockPolicy.DEFAULT.getLeaseTime() : policy.getLeaseTime();
+        try {
+            return result.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 작업은 이미 실행 중일 수 있으므로 커밋 여부를 알 수 없다
+            log.error("Partitioned execution timed out. accountNumber : {}, timeout : {}ms",
+                    accountNumber, timeout);
+            throw new AccountException(ErrorCode.TRANSACTION_OUTCOME_UNKNOWN);
+        } catch (ExecutionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.TRANSACTION_OUTCOME_UNKNOWN);
+        }
+    }
+
+    /**
+     * 계좌 파티션 작업 스레드에 body 를 넘기고 기다리지 않는다
+     */
+    public CompletableFuture<Object> submitToPartition(
+            AccountPartitionExecutor accountPartitionExecutor, String accountNumber,
+            LockPolicy policy, LockedBody<Object, Throwable> body) {
+        long waitStartedAt = startWaiting(accountNumber);
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<Object> result = accountPartitionExecutor.submit(
+                accountNumber, policy.getWaitTime(), () -> {
+                    started.set(true);
+                    long acquiredAt = acquired(accountNumber, waitStartedAt);
+                    try {
+                        return body.proceed();
+                    } finally {
+                        released(accountNumber, acquiredAt);
+                    }
+                });
+        return result.whenComplete((value, error) -> {
+            if (error != null && !started.get()) {
+                failed(accountNumber, waitStartedAt);
+            }
+        });
+    }
+
+    /**
+     * 누적 대기시간이 긴 순서, 같으면 실패가 많은 순서
+     */
+    public List<LockContentionInfo> getHotAccounts(int limit) {
+        int size = Math.max(limit, 1);
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().toInfo(entry.getKey()))
+                .sorted(Comparator.comparingLong(LockContentionInfo::getTotalWaitTime)
+                        .thenComparingLong(LockContentionInfo::getFailedCount)
+                        .reversed())
+                .limit(size)
+                .toList();
+    }
+
+    public void reset() {
+        stats.entrySet().removeIf(entry -> entry.getValue().isIdle());
+    }
+
+    private AccountLockStats statsOf(String accountNumber) {
+        AccountLockStats accountStats = stats.get(accountNumber);
+        if (accountStats == null) {
+            if (stats.size() >= maxAccounts) {
+                evictIdle();
+            }
+            accountStats = stats.computeIfAbsent(accountNumber, key -> new AccountLockStats());
+        }
+        accountStats.lastSeenAt = System.nanoTime();
+        return accountStats;
+    }
+
+    private void evictIdle() {
+        String victim = findIdle(EVICTION_SAMPLES);
+        if (victim == null) {
+            // 표본이 모두 대기 중이면 전체를 훑는다
+            victim = findIdle(Integer.MAX_VALUE);
+        }
+        if (victim != null) {
+            // 고른 뒤에 다시 쓰이기 시작했으면 버리지 않는다
+            stats.computeIfPresent(victim, (key, value) -> value.isIdle() ? null : value);
+        }
+    }
+
+    private String findIdle(int samples) {
+        String victim = null;
+        long oldest = Long.MAX_VALUE;
+        Iterator<Map.Entry<String, AccountLockStats>> iterator = stats.entrySet().iterator();
+        for (int i = 0; i < samples && iterator.hasNext(); i++) {
+            Map.Entry<String, AccountLockStats> entry = iterator.next();
+            if (entry.getValue().isIdle() && entry.getValue().lastSeenAt < oldest) {
+                oldest = entry.getValue().lastSeenAt;
+                victim = entry.getKey();
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * 버려진 뒤 새로 만든 통계에서 줄여도 음수가 되지 않게 한다
+     */
+    private static void decrement(AtomicInteger counter) {
+        counter.updateAndGet(value -> Math.max(value - 1, 0));
+    }
+
+    @FunctionalInterface
+    public interface LockedBody<T, E extends Throwable> {
+        T proceed() throws E;
+    }
+
+    private static class AccountLockStats {
+        private final LatencyHistogram waitTime = new LatencyHistogram();
+        private final LatencyHistogram holdTime = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final AtomicInteger holders = new AtomicInteger();
+        private volatile long lastSeenAt;
+
+        private boolean isIdle() {
+            return waiters.get() == 0 && holders.get() == 0;
+        }
+
+        private LockContentionInfo toInfo(String accountNumber) {
+            return LockContentionInfo.builder()
+                    .accountNumber(accountNumber)
+                    .currentWaiters(waiters.get())
+                    .acquiredCount(holdTime.getCount())
+                    .failedCount(failures.sum())
+                    .totalWaitTime(waitTime.getTotalMillis())
+                    .waitTimeP50(waitTime.percentile(0.5))
+                    .waitTimeP99(waitTime.percentile(0.99))
+                    .waitTimeMax(waitTime.getMaxMillis())
+                    .holdTimeP50(holdTime.percentile(0.5))
+                    .holdTimeP99(holdTime.percentile(0.99))
+                    .holdTimeMax(holdTime.getMaxMillis())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.aop.LockPolicy;
+import com.example.account.config.AccountLockProperties;
+import com.example.account.type.LockMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link AccountLock} 값 위에 application.yml 과 런타임 재정의 값을 덮어써서 락 정책을 만든다
+ */
+@Slf4j
+@Service
+public class LockPolicyRegistry {
+    private final Map<String, AccountLockProperties.Policy> overrides =
+            new ConcurrentHashMap<>();
+    private final boolean allowLockFree;
+
+    public LockPolicyRegistry(AccountLockProperties accountLockProperties) {
+        this.allowLockFree = accountLockProperties.isAllowLockFree();
+        accountLockProperties.getPolicies().forEach(this::validateMode);
+        overrides.putAll(accountLockProperties.getPolicies());
+    }
+
+    /**
+     * 어노테이션에 이름이 없으면 defaultName(메서드 이름)을 정책 이름으로 쓴다
+     */
+    public LockPolicy resolve(String defaultName, AccountLock accountLock) {
+        String name = accountLock.name().isEmpty() ? defaultName : accountLock.name();
+        return applyOverride(LockPolicy.from(name, accountLock));
+    }
+
+    public LockPolicy applyOverride(LockPolicy base) {
+        AccountLockProperties.Policy override = overrides.get(base.getName());
+        if (override == null) {
+            return base;
+        }
+
+        LockPolicy.LockPolicyBuilder builder = base.toBuilder();
+        if (override.getWaitTime() != null) {
+            builder.waitTime(override.getWaitTime());
+        }
+        if (override.getLeaseTime() != null) {
+            builder.leaseTime(override.getLeaseTime());
+        }
+        if (override.getFair() != null) {
+            builder.fair(override.getFair());
+        }
+        if (override.getMode() != null) {
+            builder.mode(override.getMode());
+        }
+        return builder.build();
+    }
+
+    public Map<String, AccountLockProperties.Policy> getOverrides() {
+        return new TreeMap<>(overrides);
+    }
+
+    public AccountLockProperties.Policy updateOverride(
+            String name, AccountLockProperties.Policy policy) {
+        validateMode(name, policy);
+        log.info("Lock policy override updated. name : {}, mode : {}", name, policy.getMode());
+        overrides.put(name, policy);
+        return policy;
+    }
+
+    public void removeOverride(String name) {
+        log.info("Lock policy override removed. name : {}", name);
+        overrides.remove(name);
+    }
+
+    /**
+     * none 모드는 잔액 락을 끄므로 account.lock.allow-lock-free 로 켠 경우에만 받는다
+     */
+    private void validateMode(String name, AccountLockProperties.Policy policy) {
+        if (policy.getMode() == LockMode.NONE && !allowLockFree) {
+            throw new IllegalArgumentException(
+                    "Lock-free mode is not allowed for lock policy " + name);
+        }
+    }
+}
@@ -1,46 +1,135 @@
 package com.example.account.service;
 
+import com.example.account.aop.LockPolicy;
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Redisson 분산 락, 같은 노드의 경쟁은 AccountLocalLock 에서 먼저 걸러진다
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class LockService {
+@ConditionalOnProperty(name = "account.lock.provider", havingValue = "redisson",
+        matchIfMissing = true)
+public class LockService implements AsyncAccountLockProvider {
+    // 비동기 락 소유자 id 는 음수로 발급해서 실제 스레드 id 와 겹치지 않게 한다
+    private static final AtomicLong ASYNC_OWNER_ID = new AtomicLong();
+
     private final RedissonClient redissonClient;
+    private final AccountLocalLock accountLocalLock;
 
     private static String getLockKey(String accountNumber) {
         return "ACLK" + accountNumber;
     }
 
-    public String lock(String accountNumber) {
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber));
-        log.debug("Trying lock for accountNumber : {}", accountNumber);
+    private RLock getLock(String accountNumber, LockPolicy policy) {
+        return policy.isFair()
+                ? redissonClient.getFairLock(getLockKey(accountNumber))
+                : redissonClient.getLock(getLockKey(accountNumber));
+    }
+
+    public void lock(String accountNumber) {
+        lock(accountNumber, LockPolicy.DEFAULT);
+    }
+
+    @Override
+    public void lock(String accountNumber, LockPolicy policy) {
+        RLock lock = getLock(accountNumber, policy);
+        log.debug("Trying lock for accountNumber : {}, policy : {}", accountNumber, policy);
 
+        long startedAt = System.nanoTime();
+        boolean isLocalLock = false;
         try {
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
+            // 같은 노드의 경쟁자는 로컬 락에서 대기하고 Redis 까지 가지 않는다
+            isLocalLock = accountLocalLock.tryLock(
+                    accountNumber, policy.getWaitTime(), TimeUnit.MILLISECONDS);
+            if (!isLocalLock) {
+                log.error("==================Local lock acquisition failed================== accountNumber : {}",
+                        accountNumber);
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+
+            long remaining = policy.getWaitTime()
+                    - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            // leaseTime 이 -1 이면 Redisson watchdog 이 락을 연장한다
+            boolean isLock = lock.tryLock(Math.max(remaining, 0L),
+                    policy.isWatchdog() ? -1L : policy.getLeaseTime(),
+                    TimeUnit.MILLISECONDS);
             if (!isLock) {
-                log.error("==================Lock acquisition failed==================");
+                log.error("==================Lock acquisition failed================== accountNumber : {}",
+                        accountNumber);
                 throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
             }
         } catch (AccountException e) {
+            if (isLocalLock) {
+                accountLocalLock.unlock(accountNumber);
+            }
             throw e;
         } catch (Exception e) {
-            log.error("Redis lock failed");
+            // 분산 락 없이 핸들러를 실행하지 않도록 로컬 락을 풀고 락 실패로 돌려준다
+            if (isLocalLock) {
+                accountLocalLock.unlock(accountNumber);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Redis lock failed. accountNumber : {}", accountNumber, e);
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
         }
-
-        return "Lock Success";
     }
 
     public void unlock(String accountNumber) {
+        unlock(accountNumber, LockPolicy.DEFAULT);
+    }
+
+    @Override
+    public void unlock(String accountNumber, LockPolicy policy) {
         log.debug("Unlock for accountNumber : {}", accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+        try {
+            getLock(accountNumber, policy).unlock();
+        } finally {
+            accountLocalLock.unlock(accountNumber);
+        }
+    }
+
+    /**
+     * 로컬 락 티어는 스레드에 묶여 있으므로 비동기 경로는 Redis 락만 사용한다
+     */
+    @Override
+    public CompletableFuture<Long> lockAsync(String accountNumber, LockPolicy policy) {
+        long ownerId = ASYNC_OWNER_ID.decrementAndGet();
+        log.debug("Trying async lock for accountNumber : {}, policy : {}", accountNumber, policy);
+
+        return getLock(accountNumber, policy)
+                .tryLockAsync(policy.getWaitTime(),
+                        policy.isWatchdog() ? -1L : policy.getLeaseTime(),
+                        TimeUnit.MILLISECONDS, ownerId)
+                .toCompletableFuture()
+                .thenApply(isLock -> {
+                    if (!isLock) {
+                        log.error("==================Lock acquisition failed================== accountNumber : {}",
+                                accountNumber);
+                        throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                    }
+                    return ownerId;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> unlockAsync(String accountNumber, LockPolicy policy,
+                                               long ownerId) {
+        log.debug("Async unlock for accountNumber : {}", accountNumber);
+        return getLock(accountNumber, policy).unlockAsync(ownerId).toCompletableFuture();
     }
 }
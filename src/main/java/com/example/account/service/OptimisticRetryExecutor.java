@@ -0,0 +1,72 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 분산 락 없이 실행하고 Account 버전 충돌이 나면 지터가 섞인 지수 백오프로 다시 실행한다
+ * 재시도가 모두 실패하면 ACCOUNT_TRANSACTION_LOCK 으로 끝낸다
+ */
+@Slf4j
+@Component
+public class OptimisticRetryExecutor {
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticRetryExecutor(
+            @Value("${account.lock.optimistic.max-attempts:5}") int maxAttempts,
+            @Value("${account.lock.optimistic.base-backoff-millis:10}") long baseBackoffMillis,
+            @Value("${account.lock.optimistic.max-backoff-millis:200}") long maxBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public Object execute(String accountNumber, RetryableBody body) throws Throwable {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return body.proceed();
+            } catch (Throwable t) {
+                Throwable cause = t instanceof CompletionException && t.getCause() != null
+                        ? t.getCause() : t;
+                if (!isVersionConflict(cause)) {
+                    throw cause;
+                }
+                if (attempt >= maxAttempts) {
+                    log.error("Optimistic retry exhausted. accountNumber : {}, attempts : {}",
+                            accountNumber, attempt);
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                }
+                log.debug("Version conflict. accountNumber : {}, attempt : {}",
+                        accountNumber, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private static boolean isVersionConflict(Throwable t) {
+        return t instanceof OptimisticLockingFailureException
+                || t instanceof OptimisticLockException;
+    }
+
+    private void backoff(int attempt) throws InterruptedException {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        if (ceiling > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        }
+    }
+
+    @FunctionalInterface
+    public interface RetryableBody {
+        Object proceed() throws Throwable;
+    }
+}
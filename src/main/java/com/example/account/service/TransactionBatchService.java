@@ -0,0 +1,118 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 여러 출금 요청을 계좌번호로 묶어 계좌마다 락을 한 번만 잡고 트랜잭션 하나로 처리한다
+ * 락 정책은 단건 출금과 같은 "use" 정책을 쓰고, 계좌 묶음도 단건 출금과 같은 모드로 처리한다
+ * 분할 계좌와 none 모드는 락을 건너뛰고, optimistic 은 버전 충돌을 재시도하고, partitioned 는 계좌 파티션 스레드에서 실행한다
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionBatchService {
+    private static final String LOCK_NAME = "use";
+
+    private final TransactionService transactionService;
+    private final AccountLockProvider accountLockProvider;
+    private final LockPolicyRegistry lockPolicyRegistry;
+    private final LockContentionMonitor lockContentionMonitor;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final AccountPartitionExecutor accountPartitionExecutor;
+    private final AccountBalanceShardService accountBalanceShardService;
+
+    /**
+     * 결과는 요청 순서대로 돌려준다
+     */
+    public List<TransactionDto> useBalances(List<UseBalance.Request> requests) {
+        // 계좌번호 순서로 처리해서 노드 간 락 순서를 맞춘다
+        Map<String, List<Integer>> indexesByAccount = new TreeMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexesByAccount.computeIfAbsent(requests.get(i).getAccountNumber(),
+                    accountNumber -> new ArrayList<>()).add(i);
+        }
+
+        LockPolicy policy = lockPolicyRegistry.applyOverride(
+                LockPolicy.DEFAULT.toBuilder().name(LOCK_NAME).build());
+        TransactionDto[] results = new TransactionDto[requests.size()];
+
+        indexesByAccount.forEach((accountNumber, indexes) -> {
+            List<UseBalance.Request> group = indexes.stream().map(requests::get).toList();
+            List<TransactionDto> groupResults;
+            try {
+                groupResults = useBalancesInMode(accountNumber, policy, group);
+            } catch (AccountException e) {
+                log.error("Failed to use balance batch. accountNumber : {}, errorCode : {}",
+                        accountNumber, e.getErrorCode());
+                groupResults = failedGroup(accountNumber, group);
+            } catch (OptimisticLockingFailureException e) {
+                // 락 없이 처리한 계좌에 다른 출금이 먼저 커밋되면 이 계좌 묶음만 롤백되고 실패로 돌려준다
+                log.error("Version conflict in use balance batch. accountNumber : {}",
+                        accountNumber);
+                groupResults = failedGroup(accountNumber, group);
+            }
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = groupResults.get(i);
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TransactionDto> useBalancesInMode(
+            String accountNumber, LockPolicy policy, List<UseBalance.Request> group) {
+        if (policy.isLockFree() || accountBalanceShardService.isSharded(accountNumber)) {
+            return transactionService.useBalances(accountNumber, group);
+        }
+        try {
+            if (policy.isOptimistic()) {
+                return (List<TransactionDto>) optimisticRetryExecutor.execute(accountNumber,
+                        () -> transactionService.useBalances(accountNumber, group));
+            }
+            if (policy.isPartitioned()) {
+                return (List<TransactionDto>) lockContentionMonitor.withPartition(
+                        accountPartitionExecutor, accountNumber, policy,
+                        () -> transactionService.useBalances(accountNumber, group));
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+        return lockContentionMonitor.withLock(accountLockProvider, accountNumber, policy,
+                () -> transactionService.useBalances(accountNumber, group));
+    }
+
+    private static List<TransactionDto> failedGroup(String accountNumber,
+                                                    List<UseBalance.Request> group) {
+        return group.stream()
+                .map(request -> failed(accountNumber, request.getAmount()))
+                .toList();
+    }
+
+    private static TransactionDto failed(String accountNumber, Long amount) {
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.F)
+                .amount(amount)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
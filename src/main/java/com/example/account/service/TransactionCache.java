@@ -0,0 +1,123 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionCacheInfo;
+import com.example.account.dto.TransactionDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 거래번호별 거래 조회 결과 캐시
+ * 거래는 저장된 뒤 바뀌지 않으므로 무효화 없이 항목 수 상한과 TTL 로만 관리한다
+ * Redis 를 쓰도록 켜면 메모리에 없을 때 Redis 에서 찾고, 다른 노드에서 만든 거래도 찾을 수 있게 Redis 에도 넣는다
+ * Redis 오류는 기록만 하고 DB 조회로 넘어간다
+ */
+@Slf4j
+@Component
+public class TransactionCache {
+    private static final String KEY_PREFIX = "transaction:";
+
+    private final BoundedTtlCache<String, TransactionDto> transactions;
+    private final Duration redisTtl;
+    private final RedissonClient redissonClient;
+    private final Codec codec;
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+
+    public TransactionCache(
+            @Value("${account.transaction-cache.max-entries:100000}") int maxEntries,
+            @Value("${account.transaction-cache.ttl:10m}") Duration ttl,
+            @Value("${account.transaction-cache.redis-enabled:false}") boolean redisEnabled,
+            @Value("${account.transaction-cache.redis-ttl:1h}") Duration redisTtl,
+            ObjectProvider<RedissonClient> redissonClient,
+            ObjectProvider<ObjectMapper> objectMapper) {
+        this.transactions = new BoundedTtlCache<>(maxEntries, ttl.toMillis(), TimeUnit.MILLISECONDS);
+        this.redisTtl = redisTtl;
+        this.redissonClient = redisEnabled ? redissonClient.getIfAvailable() : null;
+        this.codec = this.redissonClient == null ? null
+                : new TypedJsonJacksonCodec(TransactionDto.class,
+                objectMapper.getIfAvailable(ObjectMapper::new));
+        if (redisEnabled && this.redissonClient == null) {
+            log.warn("Transaction cache redis tier requested but no RedissonClient is available.");
+        }
+    }
+
+    public Optional<TransactionDto> find(String transactionId) {
+        Optional<TransactionDto> transactionDto = transactions.get(transactionId);
+        if (transactionDto.isPresent() || redissonClient == null) {
+            return transactionDto;
+        }
+        try {
+            TransactionDto remote = redissonClient
+                    .<TransactionDto>getBucket(KEY_PREFIX + transactionId, codec).get();
+            if (remote == null) {
+                redisMisses.increment();
+                return Optional.empty();
+            }
+            redisHits.increment();
+            transactions.put(transactionId, remote);
+            return Optional.of(remote);
+        } catch (Exception e) {
+            log.error("Transaction cache redis lookup failed. transactionId : {}", transactionId, e);
+            return Optional.empty();
+        }
+    }
+
+    public void put(TransactionDto transactionDto) {
+        transactions.put(transactionDto.getTransactionId(), transactionDto);
+        if (redissonClient == null) {
+            return;
+        }
+        // 요청 스레드가 Redis 응답을 기다리지 않게 비동기로 넣는다
+        redissonClient.<TransactionDto>getBucket(KEY_PREFIX + transactionDto.getTransactionId(), codec)
+                .setAsync(transactionDto, redisTtl)
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.error("Transaction cache redis store failed. transactionId : {}",
+                                transactionDto.getTransactionId(), e);
+                    }
+                });
+    }
+
+    /**
+     * 만든 직후에 거래를 조회하는 경우가 많아서 커밋되면 바로 넣어둔다, 롤백되면 넣지 않는다
+     */
+    public void putAfterCommit(TransactionDto transactionDto) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(transactionDto);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(transactionDto);
+            }
+        });
+    }
+
+    public TransactionCacheInfo getInfo() {
+        return TransactionCacheInfo.builder()
+                .size(transactions.size())
+                .hitCount(transactions.getHitCount())
+                .missCount(transactions.getMissCount())
+                .evictionCount(transactions.getEvictionCount())
+                .expirationCount(transactions.getExpirationCount())
+                .redisEnabled(redissonClient != null)
+                .redisHitCount(redisHits.sum())
+                .redisMissCount(redisMisses.sum())
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static com.example.account.repository.TransactionRepository.EARLIEST_TRANSACTED_AT;
+import static com.example.account.repository.TransactionRepository.LATEST_TRANSACTED_AT;
+import static com.example.account.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.account.type.ErrorCode.INVALID_REQUEST;
+
+/**
+ * 거래를 DB 커서로 조금씩 읽어서 바로 응답 스트림에 쓴다
+ * 정해진 행 수마다 응답을 내보내고 영속성 컨텍스트를 비워서, 행 수와 관계없이 메모리 사용량이 일정하다
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+    // 저장소의 fetch size 와 맞춘다
+    static final int CLEAR_EVERY_ROWS = 500;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "transactionId,accountNumber,transactionType,"
+            + "transactionResultType,amount,balanceSnapShot,transactedAt,linkedTransactionId\n";
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 응답을 쓰기 시작하기 전에 요청을 확인한다, 계좌번호가 없으면 기간 전체가 있어야 한다
+     * 계좌번호가 있으면 계좌 id 를, 없으면 null 을 돌려준다
+     */
+    @Transactional(readOnly = true)
+    public Long resolveAccountId(String accountNumber, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        if (accountNumber == null || accountNumber.isBlank()) {
+            if (from == null || to == null) {
+                throw new AccountException(INVALID_REQUEST);
+            }
+            return null;
+        }
+        return accountRepository.findByAccountNumber(accountNumber)
+                .map(Account::getId)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+    }
+
+    /**
+     * 거래일시 순으로 쓰고 쓴 행 수를 돌려준다, 응답 스트림은 닫지 않는다
+     */
+    @Transactional(readOnly = true)
+    public long export(Long accountId, LocalDateTime from, LocalDateTime to,
+                       ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        long count = 0;
+        try (Stream<Transaction> transactions = streamOf(accountId, from, to)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                writeRow(writer, format, TransactionDto.fromEntity(iterator.next()));
+                if (++count % CLEAR_EVERY_ROWS == 0) {
+                    // 쓴 만큼 클라이언트로 내보내고 읽은 엔티티를 놓아준다
+                    writer.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        writer.flush();
+        log.info("Exported transactions. accountId : {}, from : {}, to : {}, rows : {}",
+                accountId, from, to, count);
+        return count;
+    }
+
+    /**
+     * 계좌가 없으면 기간은 resolveAccountId 에서 확인했으므로 모두 있다
+     */
+    private Stream<Transaction> streamOf(Long accountId, LocalDateTime from, LocalDateTime to) {
+        if (accountId == null) {
+            return transactionRepository.streamForExportByDateRange(from, to);
+        }
+        return transactionRepository.streamForExportByAccount(accountId,
+                from == null ? EARLIEST_TRANSACTED_AT : from,
+                to == null ? LATEST_TRANSACTED_AT : to);
+    }
+
+    private void writeRow(Writer writer, ExportFormat format, TransactionDto transactionDto)
+            throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(transactionDto));
+            writer.write('\n');
+            return;
+        }
+        // 값은 거래번호, 계좌번호, enum, 숫자, ISO 일시뿐이라 쉼표나 따옴표가 들어가지 않는다
+        writer.write(String.join(",",
+                transactionDto.getTransactionId(),
+                transactionDto.getAccountNumber(),
+                String.valueOf(transactionDto.getTransactionType()),
+                String.valueOf(transactionDto.getTransactionResultType()),
+                String.valueOf(transactionDto.getAmount()),
+                valueOf(transactionDto.getBalanceSnapShot()),
+                transactionDto.getTransactedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                valueOf(transactionDto.getLinkedTransactionId())));
+        writer.write('\n');
+    }
+
+    private static String valueOf(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+import static com.example.account.repository.TransactionRepository.EARLIEST_TRANSACTED_AT;
+import static com.example.account.repository.TransactionRepository.LATEST_TRANSACTED_AT;
+import static com.example.account.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.account.type.ErrorCode.INVALID_REQUEST;
+
+/**
+ * 계좌별 거래 내역을 (거래일시, id) 키셋으로 최근 순으로 끊어 읽는다
+ * 커서는 마지막으로 돌려준 거래의 (거래일시, id) 이고, 다음 페이지는 그보다 앞선 거래부터 읽는다
+ * 페이지를 넘겨도 OFFSET 만큼 건너뛰며 읽지 않으므로 거래가 많은 계좌에서도 페이지마다 비용이 같다
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionHistoryService {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // 첫 페이지는 이 시각보다 앞선 거래부터 읽는다
+    private static final LocalDateTime FIRST_PAGE_CURSOR_AT = LATEST_TRANSACTED_AT;
+    private static final String CURSOR_SEPARATOR = "_";
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+
+    @Transactional(readOnly = true)
+    public TransactionHistory.Response getTransactions(String accountNumber, String cursor,
+                                                       LocalDateTime from, LocalDateTime to,
+                                                       TransactionType transactionType,
+                                                       TransactionResultType resultType,
+                                                       Integer size) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        int pageSize = pageSizeOf(size);
+
+        LocalDateTime cursorAt = FIRST_PAGE_CURSOR_AT;
+        Long cursorId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] decoded = decodeCursor(cursor);
+            cursorAt = parseCursorAt(decoded[0]);
+            cursorId = parseCursorId(decoded[1]);
+        }
+
+        // 한 건 더 읽어서 다음 페이지가 있는지 본다
+        List<TransactionHistory.Item> items = findHistory(account.getId(), cursorAt, cursorId,
+                from == null ? EARLIEST_TRANSACTED_AT : from,
+                to == null ? LATEST_TRANSACTED_AT : to,
+                transactionType, resultType,
+                Limit.of(pageSize + 1));
+        boolean hasNext = items.size() > pageSize;
+        List<TransactionHistory.Item> page = hasNext ? items.subList(0, pageSize) : items;
+
+        return TransactionHistory.Response.builder()
+                .accountNumber(accountNumber)
+                .items(page)
+                .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1)) : null)
+                .build();
+    }
+
+    /**
+     * 거래 종류와 결과 조건이 있는 조합의 쿼리만 쓴다
+     */
+    private List<TransactionHistory.Item> findHistory(Long accountId,
+                                                      LocalDateTime cursorAt, Long cursorId,
+                                                      LocalDateTime from, LocalDateTime to,
+                                                      TransactionType transactionType,
+                                                      TransactionResultType resultType,
+                                                      Limit limit) {
+        if (transactionType != null && resultType != null) {
+            return transactionRepository.findHistoryByTypeAndResult(accountId, cursorAt,
+                    cursorId, from, to, transactionType, resultType, limit);
+        }
+        if (transactionType != null) {
+            return transactionRepository.findHistoryByType(accountId, cursorAt, cursorId,
+                    from, to, transactionType, limit);
+        }
+        if (resultType != null) {
+            return transactionRepository.findHistoryByResult(accountId, cursorAt, cursorId,
+                    from, to, resultType, limit);
+        }
+        return transactionRepository.findHistory(accountId, cursorAt, cursorId, from, to, limit);
+    }
+
+    private static int pageSizeOf(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    static String encodeCursor(TransactionHistory.Item item) {
+        String raw = item.getTransactedAt() + CURSOR_SEPARATOR + item.getId();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        String[] parts = raw.split(CURSOR_SEPARATOR, 2);
+        if (parts.length != 2) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        return parts;
+    }
+
+    private static LocalDateTime parseCursorAt(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+    }
+
+    private static Long parseCursorId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+    }
+}
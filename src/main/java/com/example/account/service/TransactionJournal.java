@@ -0,0 +1,383 @@
+package com.example.account.service;
+
+import com.example.account.dto.JournalRecord;
+import com.example.account.type.JournalRecordState;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 거래 결과를 순서대로 덧붙이는 메모리 매핑 세그먼트 파일
+ * 레코드는 [길이][CRC32][본문] 이고 길이가 0 이거나 CRC 가 맞지 않으면 거기서 끝난 것으로 본다
+ * 한 거래가 PREPARED 뒤에 COMMITTED 나 ABORTED 레코드를 더 남길 수 있다
+ * 여러 요청의 레코드를 모아서 한 번에 force 하고(group commit), 그 뒤에 각 요청의 future 를 완료한다
+ * 위치는 (세그먼트 번호 << 32) | 오프셋 이다
+ * DB 에 끝내 저장하지 못한 레코드는 같은 형식으로 dead-letter.log 에 따로 남긴다
+ */
+@Slf4j
+public class TransactionJournal implements AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitMillis;
+
+    private long segmentSeq;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private List<CompletableFuture<Void>> waitingForSync = new ArrayList<>();
+
+    private volatile boolean running = true;
+    private final Thread flusher;
+
+    public TransactionJournal(Path directory, int segmentSize, long groupCommitMillis) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.groupCommitMillis = Math.max(1L, groupCommitMillis);
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = segmentSeqs();
+            // 재시작하면 이전 세그먼트 끝에 이어 쓰지 않고 새 세그먼트를 연다
+            openSegment(segments.isEmpty() ? 1L : segments.get(segments.size() - 1) + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.flusher = new Thread(this::flushLoop, "transaction-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * 레코드를 덧붙이고 디스크에 내려간 뒤 완료되는 future 를 돌려준다
+     */
+    public CompletableFuture<Void> append(JournalRecord journalRecord) {
+        byte[] payload = encode(journalRecord);
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        synchronized (this) {
+            if (!running) {
+                throw new IllegalStateException("Journal is closed.");
+            }
+            if (buffer.remaining() < HEADER_SIZE + payload.length + 4) {
+                rollSegment();
+            }
+            journalRecord.setPosition(positionOf(segmentSeq, buffer.position()));
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+            waitingForSync.add(synced);
+            notifyAll();
+        }
+        return synced;
+    }
+
+    public synchronized long endPosition() {
+        return positionOf(segmentSeq, buffer.position());
+    }
+
+    public long checkpointPosition() {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        try {
+            return Files.exists(checkpoint)
+                    ? Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).trim())
+                    : 0L;
+        } catch (IOException | NumberFormatException e) {
+            log.error("Journal checkpoint unreadable, replaying from the beginning.", e);
+            return 0L;
+        }
+    }
+
+    /**
+     * position 앞의 레코드는 DB 에 반영되었다고 기록하고, 필요 없어진 세그먼트를 지운다
+     */
+    public void checkpoint(long position) {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            Files.writeString(temp, Long.toString(position), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+            long currentSeq;
+            synchronized (this) {
+                currentSeq = segmentSeq;
+            }
+            long checkpointSeq = position >>> 32;
+            for (long seq : segmentSeqs()) {
+                if (seq < checkpointSeq && seq < currentSeq) {
+                    Files.deleteIfExists(segmentPath(seq));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Journal checkpoint failed. position : {}", position, e);
+        }
+    }
+
+    /**
+     * from 위치부터 이전 실행에서 남긴 레코드를 읽는다, 현재 쓰는 세그먼트는 읽지 않는다
+     */
+    public List<JournalRecord> readFrom(long from) {
+        List<JournalRecord> records = new ArrayList<>();
+        long fromSeq = from >>> 32;
+        long currentSeq;
+        synchronized (this) {
+            currentSeq = segmentSeq;
+        }
+        try {
+            for (long seq : segmentSeqs()) {
+                if (seq < fromSeq || seq >= currentSeq) {
+                    continue;
+                }
+                readSegment(seq, seq == fromSeq ? (int) from : 0, records);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    /**
+     * DB 에 저장하지 못한 레코드를 dead-letter 파일에 남기고 디스크에 내린다
+     * 세그먼트가 checkpoint 로 지워져도 dead-letter 파일은 남는다
+     */
+    public synchronized void deadLetter(JournalRecord journalRecord) {
+        byte[] payload = encode(journalRecord);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(payload);
+        frame.flip();
+        try (FileChannel deadLetter = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (frame.hasRemaining()) {
+                deadLetter.write(frame);
+            }
+            deadLetter.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<JournalRecord> readDeadLetters() {
+        List<JournalRecord> records = new ArrayList<>();
+        Path deadLetter = directory.resolve(DEAD_LETTER_FILE);
+        if (!Files.exists(deadLetter)) {
+            return records;
+        }
+        try {
+            readFrames(deadLetter, 0L, 0, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            flusher.join(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            buffer.force();
+            completeAll(waitingForSync);
+            waitingForSync = new ArrayList<>();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error("Journal close failed.", e);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<CompletableFuture<Void>> synced;
+            synchronized (this) {
+                while (running && waitingForSync.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                synced = waitingForSync;
+                waitingForSync = new ArrayList<>();
+            }
+            try {
+                // 그 사이에 들어온 레코드도 같이 내려가도록 잠깐 모은다
+                Thread.sleep(groupCommitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            MappedByteBuffer target;
+            synchronized (this) {
+                synced.addAll(waitingForSync);
+                waitingForSync = new ArrayList<>();
+                target = buffer;
+            }
+            try {
+                target.force();
+                completeAll(synced);
+            } catch (RuntimeException e) {
+                log.error("Journal force failed.", e);
+                synced.forEach(future -> future.completeExceptionally(e));
+            }
+        }
+    }
+
+    private void rollSegment() {
+        // 이전 세그먼트는 바로 내려서 기다리는 요청이 새 세그먼트 force 만 기다리면 되게 한다
+        buffer.force();
+        try {
+            channel.close();
+            openSegment(segmentSeq + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openSegment(long seq) throws IOException {
+        segmentSeq = seq;
+        channel = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private void readSegment(long seq, int offset, List<JournalRecord> records) throws IOException {
+        readFrames(segmentPath(seq), seq, offset, records);
+    }
+
+    private void readFrames(Path path, long seq, int offset, List<JournalRecord> records)
+            throws IOException {
+        try (FileChannel segment = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size());
+            data.position(offset);
+            while (data.remaining() >= HEADER_SIZE) {
+                int start = data.position();
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining()) {
+                    return;
+                }
+                byte[] payload = new byte[length];
+                data.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Torn journal record ignored. file : {}, offset : {}",
+                            path.getFileName(), start);
+                    return;
+                }
+                JournalRecord journalRecord = decode(payload);
+                journalRecord.setPosition(positionOf(seq, start));
+                records.add(journalRecord);
+            }
+        }
+    }
+
+    private List<Long> segmentSeqs() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(
+                            name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(String.format("%012d%s", seq, SEGMENT_SUFFIX));
+    }
+
+    private static long positionOf(long seq, int offset) {
+        return (seq << 32) | offset;
+    }
+
+    private static void completeAll(List<CompletableFuture<Void>> futures) {
+        futures.forEach(future -> future.complete(null));
+    }
+
+    private static byte[] encode(JournalRecord journalRecord) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(journalRecord.getTransactionId());
+            out.writeLong(journalRecord.getAccountId());
+            out.writeUTF(journalRecord.getAccountNumber());
+            out.writeUTF(journalRecord.getTransactionType().name());
+            out.writeUTF(journalRecord.getTransactionResultType().name());
+            out.writeLong(journalRecord.getAmount());
+            out.writeBoolean(journalRecord.getBalanceSnapShot() != null);
+            out.writeLong(journalRecord.getBalanceSnapShot() == null
+                    ? 0L : journalRecord.getBalanceSnapShot());
+            out.writeUTF(journalRecord.getTransactedAt().toString());
+            out.writeBoolean(journalRecord.getLinkedTransactionId() != null);
+            if (journalRecord.getLinkedTransactionId() != null) {
+                out.writeUTF(journalRecord.getLinkedTransactionId());
+            }
+            out.writeUTF(journalRecord.getState().name());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static JournalRecord decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            JournalRecord.JournalRecordBuilder builder = JournalRecord.builder()
+                    .transactionId(in.readUTF())
+                    .accountId(in.readLong())
+                    .accountNumber(in.readUTF())
+                    .transactionType(TransactionType.valueOf(in.readUTF()))
+                    .transactionResultType(TransactionResultType.valueOf(in.readUTF()))
+                    .amount(in.readLong());
+            boolean hasSnapShot = in.readBoolean();
+            long snapShot = in.readLong();
+            builder.balanceSnapShot(hasSnapShot ? snapShot : null)
+                    .transactedAt(LocalDateTime.parse(in.readUTF()));
+            if (in.readBoolean()) {
+                builder.linkedTransactionId(in.readUTF());
+            }
+            return builder.state(JournalRecordState.valueOf(in.readUTF())).build();
+        }
+    }
+}
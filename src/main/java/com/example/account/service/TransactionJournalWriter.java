@@ -0,0 +1,478 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.JournalRecord;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.JournalRecordState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 거래를 커밋 전에 저널에 남겨 디스크에 내리고, DB 저장은 커밋 뒤 작업 스레드가 묶어서 한다
+ * 저널에 남기지 못하거나 디스크에 제때 내려가지 않으면 잔액 변경까지 롤백한다
+ * 커밋되면 COMMITTED, 롤백되면 ABORTED 레코드를 덧붙이고, 시작할 때 checkpoint 이후의 COMMITTED 거래만 다시 저장한다
+ * PREPARED 로 끝난 거래는 커밋 여부를 알 수 없으므로 저장하지 않고 dead-letter 로 보낸다
+ * 저장이 끝나기 전의 거래는 pending 에서 찾을 수 있고, 이미 저장된 거래번호는 건너뛰므로 같은 레코드를 여러 번 저장해도 한 건만 남는다
+ * 여러 번 저장에 실패한 레코드는 dead-letter 로 보내서 뒤의 레코드 저장을 막지 않는다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.journal.enabled", havingValue = "true")
+public class TransactionJournalWriter {
+    private final TransactionJournal journal;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<JournalRecord> queue;
+    private final int batchSize;
+    private final long syncTimeoutMillis;
+    private final long enqueueTimeoutMillis;
+    private final long retryBackoffMillis;
+    private final int maxWriteAttempts;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    // 아직 DB 에 저장되지 않은 레코드의 저널 위치, 가장 앞 위치가 checkpoint 가 된다
+    private final ConcurrentSkipListSet<Long> pendingPositions = new ConcurrentSkipListSet<>();
+    private final LongAdder deadLettered = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public TransactionJournalWriter(
+            TransactionJournal journal,
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${account.journal.queue-capacity:100000}") int queueCapacity,
+            @Value("${account.journal.batch-size:500}") int batchSize,
+            @Value("${account.journal.sync-timeout-millis:1000}") long syncTimeoutMillis,
+            @Value("${account.journal.enqueue-timeout-millis:1000}") long enqueueTimeoutMillis,
+            @Value("${account.journal.retry-backoff-millis:1000}") long retryBackoffMillis,
+            @Value("${account.journal.max-write-attempts:5}") int maxWriteAttempts) {
+        this.journal = journal;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.syncTimeoutMillis = syncTimeoutMillis;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.maxWriteAttempts = Math.max(1, maxWriteAttempts);
+    }
+
+    @PostConstruct
+    public void start() {
+        List<JournalRecord> records = committedRecords(
+                journal.readFrom(journal.checkpointPosition()));
+        if (!records.isEmpty()) {
+            log.info("Replaying transaction journal. records : {}", records.size());
+        }
+        // 작업 스레드가 첫 묶음을 저장하고 checkpoint 를 옮기기 전에 다시 저장할 위치를 모두 등록한다
+        for (JournalRecord journalRecord : records) {
+            pendingPositions.add(journalRecord.getPosition());
+            pending.put(journalRecord.getTransactionId(),
+                    new Pending(journalRecord, new CompletableFuture<>()));
+        }
+
+        running = true;
+        writer = new Thread(this::writeLoop, "transaction-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        // 다시 저장할 레코드가 큐보다 많을 수 있으므로 작업 스레드를 띄운 뒤 기다리면서 넣는다
+        try {
+            for (JournalRecord journalRecord : records) {
+                queue.put(journalRecord);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while replaying transaction journal.");
+        }
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되기 직전에 저널에 남기고 디스크에 내려갈 때까지 기다린다, 실패하면 트랜잭션이 롤백된다
+     * 트랜잭션 밖이면 바로 남긴다
+     * 한 트랜잭션의 레코드는 커밋 직전에 한 번에 남긴다
+     */
+    public void appendBeforeCommit(Transaction transaction, String accountNumber) {
+        JournalRecord journalRecord = JournalRecord.builder()
+                .transactionId(transaction.getTransactionId())
+                .accountId(transaction.getAccount().getId())
+                .accountNumber(accountNumber)
+                .transactionType(transaction.getTransactionType())
+                .transactionResultType(transaction.getTransactionResultType())
+                .amount(transaction.getAmount())
+                .balanceSnapShot(transaction.getBalanceSnapShot())
+                .transactedAt(transaction.getTransactedAt())
+                .linkedTransactionId(transaction.getLinkedTransactionId())
+                .build();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 못 남겼으면 호출한 쪽이 실패로 보므로 DB 에 저장하지 않고, 남은 레코드도 다시 저장하지 않게 ABORTED 로 덮는다
+            List<JournalRecord> appended = new ArrayList<>(1);
+            try {
+                appendAll(List.of(journalRecord), appended);
+            } catch (AccountException e) {
+                for (JournalRecord failed : appended) {
+                    appendState(failed, JournalRecordState.ABORTED);
+                    pendingPositions.remove(failed.getPosition());
+                }
+                throw e;
+            }
+            enqueue(journalRecord);
+            return;
+        }
+        JournalBatch batch = (JournalBatch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new JournalBatch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        journalRecord.setState(JournalRecordState.PREPARED);
+        batch.records.add(journalRecord);
+    }
+
+    public Optional<TransactionDto> findPending(String transactionId) {
+        Pending found = pending.get(transactionId);
+        if (found == null) {
+            return Optional.empty();
+        }
+        JournalRecord journalRecord = found.journalRecord();
+        return Optional.of(TransactionDto.builder()
+                .accountNumber(journalRecord.getAccountNumber())
+                .transactionType(journalRecord.getTransactionType())
+                .transactionResultType(journalRecord.getTransactionResultType())
+                .amount(journalRecord.getAmount())
+                .balanceSnapShot(journalRecord.getBalanceSnapShot())
+                .transactionId(journalRecord.getTransactionId())
+                .transactedAt(journalRecord.getTransactedAt())
+                .linkedTransactionId(journalRecord.getLinkedTransactionId())
+                .build());
+    }
+
+    /**
+     * 저장 대기 중인 거래면 DB 에 저장될 때까지 기다린다, 기다렸으면 true
+     */
+    public boolean awaitPersisted(String transactionId) {
+        Pending found = pending.get(transactionId);
+        if (found == null) {
+            return false;
+        }
+        try {
+            found.persisted().get(syncTimeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Journal record not persisted in time. transactionId : {}", transactionId);
+            return false;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getDeadLetteredCount() {
+        return deadLettered.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // 남은 레코드는 한 번만 저장을 시도하고, 실패하면 다음 시작 때 저널에서 다시 저장한다
+        List<JournalRecord> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (!write(batch)) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 레코드를 모두 저널에 남기고 디스크에 내려갈 때까지 기다린다, 남긴 레코드는 appended 에 모은다
+     * 하나라도 못 남기거나 syncTimeoutMillis 안에 내려가지 않으면 TRANSACTION_JOURNAL_FAILED
+     */
+    private void appendAll(List<JournalRecord> records, List<JournalRecord> appended) {
+        List<CompletableFuture<Void>> synced = new ArrayList<>(records.size());
+        for (JournalRecord journalRecord : records) {
+            try {
+                // checkpoint 계산과 겹치지 않게 위치 등록까지 한 번에 한다
+                synchronized (this) {
+                    synced.add(journal.append(journalRecord));
+                    pendingPositions.add(journalRecord.getPosition());
+                }
+            } catch (RuntimeException e) {
+                log.error("Journal append failed. transactionId : {}",
+                        journalRecord.getTransactionId(), e);
+                throw new AccountException(ErrorCode.TRANSACTION_JOURNAL_FAILED);
+            }
+            appended.add(journalRecord);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(syncTimeoutMillis);
+        for (CompletableFuture<Void> future : synced) {
+            try {
+                future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AccountException(ErrorCode.TRANSACTION_JOURNAL_FAILED);
+            } catch (ExecutionException | TimeoutException e) {
+                log.error("Journal sync failed.", e);
+                throw new AccountException(ErrorCode.TRANSACTION_JOURNAL_FAILED);
+            }
+        }
+    }
+
+    /**
+     * 커밋 여부를 덧붙인다, 디스크에 내려가기를 기다리지 않는다
+     * 못 남겨도 PREPARED 로 남으므로 다음 시작 때 dead-letter 로 간다
+     */
+    private void appendState(JournalRecord journalRecord, JournalRecordState state) {
+        try {
+            journal.append(journalRecord.toBuilder().state(state).build());
+        } catch (RuntimeException e) {
+            log.error("Journal state append failed. transactionId : {}, state : {}",
+                    journalRecord.getTransactionId(), state, e);
+        }
+    }
+
+    /**
+     * 같은 거래번호의 마지막 레코드로 거래 상태를 정한다
+     * COMMITTED 는 다시 저장하고 ABORTED 는 버리며, PREPARED 로 끝난 거래는 dead-letter 로 보내 사람이 확인하게 한다
+     * 다시 저장할 때의 위치는 그 거래의 첫 레코드 위치다
+     */
+    private List<JournalRecord> committedRecords(List<JournalRecord> records) {
+        Map<String, JournalRecord> first = new LinkedHashMap<>();
+        Map<String, JournalRecordState> last = new HashMap<>();
+        for (JournalRecord journalRecord : records) {
+            first.putIfAbsent(journalRecord.getTransactionId(), journalRecord);
+            last.put(journalRecord.getTransactionId(), journalRecord.getState());
+        }
+        List<JournalRecord> committed = new ArrayList<>(first.size());
+        for (JournalRecord journalRecord : first.values()) {
+            JournalRecordState state = last.get(journalRecord.getTransactionId());
+            if (state == JournalRecordState.COMMITTED) {
+                committed.add(journalRecord);
+            } else if (state == JournalRecordState.PREPARED) {
+                log.error("Journal record in doubt. transactionId : {}",
+                        journalRecord.getTransactionId());
+                // dead-letter 에 못 남기면 checkpoint 가 넘어가지 않게 위치를 잡아 둔다
+                pendingPositions.add(journalRecord.getPosition());
+                deadLetter(journalRecord);
+            }
+        }
+        return committed;
+    }
+
+    /**
+     * DB 저장이 밀리면 요청 스레드를 enqueueTimeoutMillis 까지만 세운다
+     * 그래도 큐에 못 넣으면 dead-letter 로 보내서 락을 잡은 요청 스레드가 무한정 서 있지 않게 한다
+     */
+    private void enqueue(JournalRecord journalRecord) {
+        pending.put(journalRecord.getTransactionId(),
+                new Pending(journalRecord, new CompletableFuture<>()));
+        boolean queued;
+        try {
+            queued = queue.offer(journalRecord, enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            log.error("Journal queue is full. transactionId : {}", journalRecord.getTransactionId());
+            deadLetter(journalRecord);
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                JournalRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<JournalRecord> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeOrDeadLetter(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeOrDeadLetter(List<JournalRecord> batch) throws InterruptedException {
+        for (int attempt = 1; !write(batch); attempt++) {
+            if (!running) {
+                // 종료 중이면 남은 레코드는 다음 시작 때 저널에서 다시 저장한다
+                return;
+            }
+            if (attempt >= maxWriteAttempts) {
+                // 레코드 하나 때문에 묶음 전체가 실패할 수 있으므로 한 건씩 저장하고 그래도 안 되는 것만 dead-letter 로 보낸다
+                for (JournalRecord journalRecord : batch) {
+                    if (!write(List.of(journalRecord))) {
+                        deadLetter(journalRecord);
+                    }
+                }
+                checkpoint();
+                return;
+            }
+            Thread.sleep(retryBackoffMillis);
+        }
+    }
+
+    /**
+     * dead-letter 파일에 남긴 레코드만 저장 대기에서 빼서 checkpoint 가 넘어갈 수 있게 한다
+     * dead-letter 에도 못 남기면 저널에 그대로 두고 다음 시작 때 다시 저장한다
+     */
+    private void deadLetter(JournalRecord journalRecord) {
+        Pending failed = pending.remove(journalRecord.getTransactionId());
+        if (failed != null) {
+            failed.persisted().completeExceptionally(new IllegalStateException(
+                    "Journal record not persisted. transactionId : "
+                            + journalRecord.getTransactionId()));
+        }
+        try {
+            journal.deadLetter(journalRecord);
+        } catch (RuntimeException e) {
+            log.error("Dead letter write failed. transactionId : {}",
+                    journalRecord.getTransactionId(), e);
+            return;
+        }
+        deadLettered.increment();
+        pendingPositions.remove(journalRecord.getPosition());
+        log.error("Journal record moved to dead letter. transactionId : {}",
+                journalRecord.getTransactionId());
+    }
+
+    private boolean write(List<JournalRecord> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> existing = new HashSet<>(transactionRepository.findTransactionIdsIn(
+                        batch.stream().map(JournalRecord::getTransactionId).toList()));
+                List<Transaction> transactions = new ArrayList<>(batch.size());
+                for (JournalRecord journalRecord : batch) {
+                    if (existing.add(journalRecord.getTransactionId())) {
+                        transactions.add(toTransaction(journalRecord));
+                    }
+                }
+                transactionRepository.saveAll(transactions);
+            });
+        } catch (Exception e) {
+            log.error("Failed to write journal records. size : {}", batch.size(), e);
+            return false;
+        }
+
+        for (JournalRecord journalRecord : batch) {
+            pendingPositions.remove(journalRecord.getPosition());
+            Pending done = pending.remove(journalRecord.getTransactionId());
+            if (done != null) {
+                done.persisted().complete(null);
+            }
+        }
+        checkpoint();
+        return true;
+    }
+
+    private void checkpoint() {
+        long position;
+        synchronized (this) {
+            position = pendingPositions.isEmpty()
+                    ? journal.endPosition() : pendingPositions.first();
+        }
+        journal.checkpoint(position);
+    }
+
+    private Transaction toTransaction(JournalRecord journalRecord) {
+        return Transaction.builder()
+                .transactionType(journalRecord.getTransactionType())
+                .transactionResultType(journalRecord.getTransactionResultType())
+                .account(accountRepository.getReferenceById(journalRecord.getAccountId()))
+                .amount(journalRecord.getAmount())
+                .balanceSnapShot(journalRecord.getBalanceSnapShot())
+                .transactionId(journalRecord.getTransactionId())
+                .transactedAt(journalRecord.getTransactedAt())
+                .linkedTransactionId(journalRecord.getLinkedTransactionId())
+                .build();
+    }
+
+    private record Pending(JournalRecord journalRecord, CompletableFuture<Void> persisted) {
+    }
+
+    /**
+     * 한 트랜잭션의 레코드, 커밋 직전에 저널에 남기고 결과에 따라 상태를 덧붙인다
+     */
+    private class JournalBatch implements TransactionSynchronization {
+        private final List<JournalRecord> records = new ArrayList<>();
+        private final List<JournalRecord> appended = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            appendAll(records, appended);
+        }
+
+        @Override
+        public void afterCommit() {
+            for (JournalRecord journalRecord : appended) {
+                appendState(journalRecord, JournalRecordState.COMMITTED);
+                enqueue(journalRecord);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(
+                    TransactionJournalWriter.this);
+            if (status == STATUS_COMMITTED) {
+                return;
+            }
+            for (JournalRecord journalRecord : appended) {
+                if (status == STATUS_ROLLED_BACK) {
+                    appendState(journalRecord, JournalRecordState.ABORTED);
+                    pendingPositions.remove(journalRecord.getPosition());
+                } else {
+                    log.error("Journal record in doubt. transactionId : {}",
+                            journalRecord.getTransactionId());
+                    deadLetter(journalRecord);
+                }
+            }
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.FailedTransactionRecord;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
@@ -14,21 +16,33 @@ import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static com.example.account.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
 import static com.example.account.type.ErrorCode.AMOUNT_EXCEED_BALANCE;
+import static com.example.account.type.ErrorCode.SAME_ACCOUNT_TRANSFER;
+import static com.example.account.type.ErrorCode.TRANSFER_NOT_CANCELLABLE;
 import static com.example.account.type.ErrorCode.USER_ACCOUNT_UN_MATCH;
 import static com.example.account.type.ErrorCode.USER_ALREADY_UNREGISTERED;
 import static com.example.account.type.ErrorCode.USER_NOT_FOUND;
 import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.TRANSFER_IN;
+import static com.example.account.type.TransactionType.TRANSFER_OUT;
 import static com.example.account.type.TransactionType.USE;
 
 @Service
@@ -38,10 +52,22 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final AccountUserRepository accountUserRepository;
     private final AccountRepository accountRepository;
+    private final AccountBalanceShardService accountBalanceShardService;
+    // account.journal.enabled=true 일 때만 있다
+    private final ObjectProvider<TransactionJournalWriter> transactionJournalWriter;
+    private final TransactionCache transactionCache;
+    private final AccountEtagResolver accountEtagResolver;
 
     @Transactional
     public TransactionDto useBalance(Long userId, String accountNumber,
                                      Long amount) {
+        // 조건부 UPDATE 로 출금이 되면 계좌와 사용자를 읽지 않고 거래만 남긴다
+        Optional<TransactionDto> debited = debitIfAvailable(userId, accountNumber, amount);
+        if (debited.isPresent()) {
+            return debited.get();
+        }
+
+        // 갱신된 행이 없을 때만 실패 사유를 확인한다, 분할된 계좌도 여기서 처리한다
         AccountUser user = accountUserRepository.findById(userId)
                 .orElseThrow(
                         () -> new AccountException(USER_NOT_FOUND));
@@ -51,11 +77,36 @@ public class TransactionService {
                         () -> new AccountException(ACCOUNT_NOT_FOUND));
         validateUseBalance(user, account, amount);
 
-        account.useBalance(amount);
-        return TransactionDto.fromEntity(
-                saveAndGetTransaction(USE, S, amount, account)
-        );
+        if (account.isSharded()) {
+            accountBalanceShardService.debit(account, amount);
+            changed(account);
+            return TransactionDto.fromEntity(
+                    saveAndGetTransaction(USE, S, amount, account)
+            );
+        }
+
+        // 조건부 UPDATE 뒤에 입금이 들어와 검증을 통과한 경우다, 엔티티로 출금하지 않고 UPDATE 만 한 번 더 시도한다
+        return debitIfAvailable(userId, accountNumber, amount)
+                .orElseThrow(() -> new AccountException(ACCOUNT_TRANSACTION_LOCK));
+    }
 
+    private Optional<TransactionDto> debitIfAvailable(Long userId, String accountNumber,
+                                                      Long amount) {
+        if (accountRepository.debitIfAvailable(accountNumber, userId, amount,
+                AccountStatus.IN_USE, LocalDateTime.now()) != 1) {
+            return Optional.empty();
+        }
+        AccountRepository.BalanceView balanceView =
+                accountRepository.findBalanceViewByAccountNumber(accountNumber)
+                        .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        accountEtagResolver.changedAfterCommit(balanceView.getId(), userId);
+        return Optional.of(TransactionDto.fromEntity(
+                persist(buildTransaction(USE, S, amount,
+                                accountRepository.getReferenceById(balanceView.getId()),
+                                balanceView.getBalance()),
+                        accountNumber),
+                accountNumber
+        ));
     }
 
     private void validateUseBalance(AccountUser user, Account account,
@@ -66,18 +117,82 @@ public class TransactionService {
         if (account.getAccountStatus() != AccountStatus.IN_USE) {
             throw new AccountException(USER_ALREADY_UNREGISTERED);
         }
-        if (account.getBalance() < amount) {
+        // 분할된 계좌는 슬롯 출금에서 잔액을 확인한다
+        if (!account.isSharded() && account.getBalance() < amount) {
             throw new AccountException(AMOUNT_EXCEED_BALANCE);
         }
     }
 
+    /**
+     * 출금과 입금을 트랜잭션 하나로 처리하고 서로의 거래번호를 가진 거래 두 건을 남긴다
+     * 두 계좌의 락은 호출하는 쪽에서 계좌번호 순서로 잡는다
+     */
     @Transactional
-    public void saveFailedUseTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(
-                        () -> new AccountException(ACCOUNT_NOT_FOUND));
+    public TransactionDto transfer(Long userId, String fromAccountNumber,
+                                   String toAccountNumber, Long amount) {
+        if (Objects.equals(fromAccountNumber, toAccountNumber)) {
+            throw new AccountException(SAME_ACCOUNT_TRANSFER);
+        }
+        AccountUser user = accountUserRepository.findById(userId)
+                .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
+        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        validateUseBalance(user, fromAccount, amount);
+        if (toAccount.getAccountStatus() != AccountStatus.IN_USE) {
+            throw new AccountException(USER_ALREADY_UNREGISTERED);
+        }
+
+        if (fromAccount.isSharded()) {
+            accountBalanceShardService.debit(fromAccount, amount);
+        } else {
+            fromAccount.useBalance(amount);
+        }
+        if (toAccount.isSharded()) {
+            accountBalanceShardService.credit(toAccount, amount);
+        } else {
+            toAccount.cancelBalance(amount);
+        }
+        changed(fromAccount);
+        changed(toAccount);
+
+        Transaction withdrawal = buildTransaction(TRANSFER_OUT, S, amount, fromAccount,
+                balanceOf(fromAccount));
+        Transaction deposit = buildTransaction(TRANSFER_IN, S, amount, toAccount,
+                balanceOf(toAccount));
+        deposit.setTransactedAt(withdrawal.getTransactedAt());
+        withdrawal.setLinkedTransactionId(deposit.getTransactionId());
+        deposit.setLinkedTransactionId(withdrawal.getTransactionId());
+        persist(deposit, toAccountNumber);
+        return TransactionDto.fromEntity(persist(withdrawal, fromAccountNumber), fromAccountNumber);
+    }
 
-        saveAndGetTransaction(USE, F, amount, account);
+    /**
+     * 실패 거래 기록을 한 번에 저장한다, 계좌는 한 번의 조회로 읽고 없는 계좌의 기록은 버린다
+     */
+    @Transactional
+    public void saveFailedTransactions(List<FailedTransactionRecord> records) {
+        Map<String, Account> accounts = new HashMap<>();
+        accountRepository.findByAccountNumberIn(records.stream()
+                        .map(FailedTransactionRecord::getAccountNumber)
+                        .collect(Collectors.toSet()))
+                .forEach(account -> accounts.put(account.getAccountNumber(), account));
+
+        List<Transaction> transactions = new ArrayList<>(records.size());
+        for (FailedTransactionRecord failedRecord : records) {
+            Account account = accounts.get(failedRecord.getAccountNumber());
+            if (account == null) {
+                log.warn("Skip failed transaction of unknown account. accountNumber : {}",
+                        failedRecord.getAccountNumber());
+                continue;
+            }
+            Transaction transaction = buildTransaction(failedRecord.getTransactionType(), F,
+                    failedRecord.getAmount(), account, balanceOf(account));
+            transaction.setTransactedAt(failedRecord.getTransactedAt());
+            transactions.add(transaction);
+        }
+        transactionRepository.saveAll(transactions);
     }
 
     private Transaction saveAndGetTransaction(
@@ -85,33 +200,160 @@ public class TransactionService {
             TransactionResultType transactionResultTypes,
             Long amount,
             Account account) {
-        return transactionRepository.save(Transaction.builder()
+        return persist(buildTransaction(transactionType, transactionResultTypes, amount, account,
+                balanceOf(account)), account.getAccountNumber());
+    }
+
+    /**
+     * 저널을 쓰면 커밋 직전에 저널에 남기고 DB 저장은 커밋 뒤 작업 스레드에 맡긴다
+     */
+    private Transaction persist(Transaction transaction, String accountNumber) {
+        transactionCache.putAfterCommit(TransactionDto.fromEntity(transaction, accountNumber));
+        TransactionJournalWriter journalWriter = transactionJournalWriter.getIfAvailable();
+        if (journalWriter == null) {
+            return transactionRepository.save(transaction);
+        }
+        journalWriter.appendBeforeCommit(transaction, accountNumber);
+        return transaction;
+    }
+
+    /**
+     * 캐시에 없으면 DB 에서 읽어서 캐시에 넣는다
+     */
+    private Optional<TransactionDto> loadTransaction(String transactionId) {
+        Optional<TransactionDto> cached = transactionCache.find(transactionId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<TransactionDto> transactionDto = transactionRepository
+                .findByTransactionId(transactionId)
+                .map(TransactionDto::fromEntity);
+        transactionDto.ifPresent(transactionCache::put);
+        return transactionDto;
+    }
+
+    /**
+     * 저널에만 있고 아직 DB 에 저장되지 않은 거래는 저장될 때까지 기다렸다가 다시 읽는다
+     */
+    private Optional<TransactionDto> findTransaction(String transactionId) {
+        Optional<TransactionDto> transactionDto = loadTransaction(transactionId);
+        TransactionJournalWriter journalWriter = transactionJournalWriter.getIfAvailable();
+        if (transactionDto.isPresent() || journalWriter == null
+                || !journalWriter.awaitPersisted(transactionId)) {
+            return transactionDto;
+        }
+        return loadTransaction(transactionId);
+    }
+
+    private static Transaction buildTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultTypes,
+            Long amount,
+            Account account,
+            Long balanceSnapShot) {
+        return Transaction.builder()
                 .transactionType(transactionType)
                 .transactionResultType(transactionResultTypes)
                 .account(account)
                 .amount(amount)
-                .balanceSnapShot(account.getBalance())
+                .balanceSnapShot(balanceSnapShot)
                 .transactionId(UUID.randomUUID().toString().replace("-", ""))
                 .transactedAt(LocalDateTime.now())
-                .build());
+                .build();
+    }
+
+    /**
+     * 한 계좌에 대한 여러 출금을 트랜잭션 하나로 처리한다
+     * 항목별 실패는 예외로 던지지 않고 실패 거래로 남겨서 같은 계좌의 다른 항목은 그대로 커밋된다
+     * 계좌 락은 호출하는 쪽에서 잡는다
+     */
+    @Transactional
+    public List<TransactionDto> useBalances(String accountNumber,
+                                            List<UseBalance.Request> requests) {
+        Optional<Account> foundAccount = accountRepository.findByAccountNumber(accountNumber);
+        if (foundAccount.isEmpty()) {
+            return requests.stream()
+                    .map(request -> failedTransactionDto(accountNumber, request.getAmount()))
+                    .toList();
+        }
+        Account account = foundAccount.get();
+        Map<Long, Optional<AccountUser>> users = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>(requests.size());
+
+        for (UseBalance.Request request : requests) {
+            Long amount = request.getAmount();
+            try {
+                AccountUser user = users
+                        .computeIfAbsent(request.getUserId(), accountUserRepository::findById)
+                        .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
+                validateUseBalance(user, account, amount);
+                if (account.isSharded()) {
+                    accountBalanceShardService.debit(account, amount);
+                } else {
+                    account.useBalance(amount);
+                }
+                transactions.add(buildTransaction(USE, S, amount, account, balanceOf(account)));
+            } catch (AccountException e) {
+                log.error("Failed to use balance in batch. accountNumber : {}, errorCode : {}",
+                        accountNumber, e.getErrorCode());
+                transactions.add(buildTransaction(USE, F, amount, account, balanceOf(account)));
+            }
+        }
+
+        changed(account);
+        List<TransactionDto> transactionDtos = transactionRepository.saveAll(transactions).stream()
+                .map(transaction -> TransactionDto.fromEntity(transaction, accountNumber))
+                .toList();
+        transactionDtos.forEach(transactionCache::putAfterCommit);
+        return transactionDtos;
+    }
+
+    private static TransactionDto failedTransactionDto(String accountNumber, Long amount) {
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(USE)
+                .transactionResultType(F)
+                .amount(amount)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private void changed(Account account) {
+        accountEtagResolver.changedAfterCommit(account.getId(), account.getAccountUser().getId());
+    }
+
+    private Long balanceOf(Account account) {
+        return account.isSharded()
+                ? accountBalanceShardService.getBalance(account)
+                : account.getBalance();
     }
 
     @Transactional
     public TransactionDto cancelBalance(String transactionId, String accountNumber, Long amount) {
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
+        TransactionDto transaction = findTransaction(transactionId)
                 .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(
                         () -> new AccountException(ACCOUNT_NOT_FOUND));
         validateCancelBalance(transaction, account, amount);
-        account.cancelBalance(amount);
+        if (account.isSharded()) {
+            accountBalanceShardService.credit(account, amount);
+        } else {
+            account.cancelBalance(amount);
+        }
+        changed(account);
         return TransactionDto.fromEntity(
                 saveAndGetTransaction(CANCEL, S, amount, account)
         );
     }
 
-    private void validateCancelBalance(Transaction transaction, Account account, Long amount) {
-        if (!Objects.equals(transaction.getAccount().getId(), account.getId())) {
+    private void validateCancelBalance(TransactionDto transaction, Account account, Long amount) {
+        // 이체는 반대 방향 이체로 되돌린다
+        if (transaction.getTransactionType() == TRANSFER_OUT
+                || transaction.getTransactionType() == TRANSFER_IN) {
+            throw new AccountException(TRANSFER_NOT_CANCELLABLE);
+        }
+        if (!Objects.equals(transaction.getAccountNumber(), account.getAccountNumber())) {
             throw new AccountException(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH);
         }
         if (!Objects.equals(transaction.getAmount(), amount)) {
@@ -122,17 +364,14 @@ public class TransactionService {
         }
     }
 
-    public void saveFailedCancelTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(
-                        () -> new AccountException(ACCOUNT_NOT_FOUND));
-
-        saveAndGetTransaction(CANCEL, F, amount, account);
-    }
-
     public TransactionDto queryTransaction(String transactionId) {
-        return TransactionDto.fromEntity(transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND))
-        );
+        Optional<TransactionDto> transaction = loadTransaction(transactionId);
+        if (transaction.isPresent()) {
+            return transaction.get();
+        }
+        TransactionJournalWriter journalWriter = transactionJournalWriter.getIfAvailable();
+        return Optional.ofNullable(journalWriter)
+                .flatMap(writer -> writer.findPending(transactionId))
+                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
     }
 }
@@ -0,0 +1,66 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 두 계좌의 락을 {@link AccountLocalLock#lockOrder()} 순서로 잡고 이체한다
+ * 로컬 스트라이프와 분산 락을 모든 노드가 같은 순서로 잡으므로 서로 반대 방향 이체나 스트라이프를 나눠 쓰는 이체가 동시에 와도 교착되지 않는다
+ * 락 정책은 "transfer" 정책을 쓰고, optimistic, partitioned 모드는 이체에서 일반 락으로 처리한다
+ * 분할 계좌도 락을 잡아서, 서로 반대 방향 이체가 슬롯 행을 반대 순서로 잠가 DB 에서 교착되지 않게 한다
+ * 단, 같은 계좌의 단건 출금이 none, optimistic, partitioned 모드거나 분할 계좌면 그 출금은 이 락을 잡지 않으므로 이체와 서로 배타적이지 않다
+ * 그때 생기는 Account 버전 충돌이나 DB 락 실패는 재시도하지 않고 ACCOUNT_TRANSACTION_LOCK 으로 실패시킨다
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionTransferService {
+    private static final String LOCK_NAME = "transfer";
+
+    private final TransactionService transactionService;
+    private final AccountLockProvider accountLockProvider;
+    private final LockPolicyRegistry lockPolicyRegistry;
+    private final LockContentionMonitor lockContentionMonitor;
+    private final AccountLocalLock accountLocalLock;
+
+    public TransactionDto transfer(Long userId, String fromAccountNumber,
+                                   String toAccountNumber, Long amount) {
+        LockPolicy policy = lockPolicyRegistry.applyOverride(
+                LockPolicy.DEFAULT.toBuilder().name(LOCK_NAME).build());
+        List<String> lockOrder = policy.isLockFree() ? List.of()
+                : Stream.of(fromAccountNumber, toAccountNumber)
+                .distinct()
+                .sorted(accountLocalLock.lockOrder())
+                .toList();
+        try {
+            return lockInOrder(lockOrder, 0, policy, () -> transactionService.transfer(
+                    userId, fromAccountNumber, toAccountNumber, amount));
+        } catch (ConcurrencyFailureException e) {
+            log.error("Concurrency failure in transfer. from : {}, to : {}",
+                    fromAccountNumber, toAccountNumber, e);
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    /**
+     * 앞의 계좌 락을 잡은 채로 다음 계좌 락을 잡으므로 잡은 순서의 반대로 풀린다
+     */
+    private TransactionDto lockInOrder(
+            List<String> accountNumbers, int index, LockPolicy policy,
+            LockContentionMonitor.LockedBody<TransactionDto, RuntimeException> body) {
+        if (index == accountNumbers.size()) {
+            return body.proceed();
+        }
+        return lockContentionMonitor.withLock(accountLockProvider, accountNumbers.get(index), policy,
+                () -> lockInOrder(accountNumbers, index + 1, policy, body));
+    }
+}
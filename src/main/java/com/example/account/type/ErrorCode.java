@@ -19,7 +19,15 @@ public enum ErrorCode {
     AMOUNT_EXCEED_BALANCE("거래금액이 계좌 금액보다 큽니다"),
     USER_ALREADY_UNREGISTERED("계좌가 이미 해지되었습니다."),
     BALANCE_NOT_EMPTY("계좌잔액이 비어있지 않습니다."),
-    MAX_ACCOUNT_PER_USER_10("사용자 최대 계좌는 10개입니다.");
+    MAX_ACCOUNT_PER_USER_10("사용자 최대 계좌는 10개입니다."),
+    ACCOUNT_ALREADY_SHARDED("이미 잔액이 분할된 계좌입니다."),
+    IDEMPOTENCY_KEY_IN_PROGRESS("같은 멱등키로 처리 중인 요청이 있습니다."),
+    IDEMPOTENCY_KEY_REUSED("같은 멱등키로 다른 요청을 보냈습니다."),
+    SAME_ACCOUNT_TRANSFER("같은 계좌로는 이체할 수 없습니다."),
+    TRANSFER_NOT_CANCELLABLE("이체 거래는 취소할 수 없습니다."),
+    ACCOUNT_NUMBER_EXHAUSTED("발급할 수 있는 계좌번호가 없습니다."),
+    TRANSACTION_JOURNAL_FAILED("거래 기록을 디스크에 남기지 못해 거래를 처리하지 않았습니다."),
+    TRANSACTION_OUTCOME_UNKNOWN("거래 처리 결과를 확인하지 못했습니다. 거래 내역을 확인해 주세요.");
 
     private final String description;
 }
@@ -0,0 +1,8 @@
+package com.example.account.type;
+
+public enum JournalRecordState {
+    // 커밋 전에 남긴 레코드, 뒤에 COMMITTED 나 ABORTED 가 없으면 커밋 여부를 알 수 없다
+    PREPARED,
+    COMMITTED,
+    ABORTED
+}
@@ -0,0 +1,8 @@
+package com.example.account.type;
+
+public enum LockMode {
+    LOCK,
+    OPTIMISTIC,
+    PARTITIONED,
+    NONE
+}
@@ -1,23 +1,29 @@
 insert into account_user
-(id, name, created_at, updated_at)
+(id, name, account_count, created_at, updated_at)
 values
-(1, 'test', now(), now())
+(1, 'test', 0, now(), now())
 ;
 
 insert into account_user
-(id, name, created_at, updated_at)
+(id, name, account_count, created_at, updated_at)
 values
-(2, 'test2', now(), now())
+(2, 'test2', 0, now(), now())
 ;
 
 insert into account_user
-(id, name, created_at, updated_at)
+(id, name, account_count, created_at, updated_at)
 values
-(3, 'test3', now(), now())
+(3, 'test3', 0, now(), now())
 ;
 
 insert into account_user
-(id, name, created_at, updated_at)
+(id, name, account_count, created_at, updated_at)
 values
-(4, 'test4', now(), now())
-;
\ No newline at end of file
+(4, 'test4', 0, now(), now())
+;
+
+-- 직접 넣은 id 다음부터 시퀀스를 쓴다
+alter sequence account_user_seq restart with 5;
+
+-- 계좌번호 구간 번호, AccountNumberAllocator 참고
+create sequence if not exists account_number_seq start with 0 minvalue 0;
@@ -0,0 +1,126 @@
+package com.example.account.benchmark;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.service.TransactionBatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.example.account.type.AccountStatus.IN_USE;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 거래 행 INSERT 처리량 비교, ./gradlew benchmark 로만 실행된다
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "account.lock.provider=local",
+        "spring.datasource.url=jdbc:h2:mem:benchmark",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+class TransactionInsertBenchmarkTest {
+    private static final int ROWS = 5000;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+    @Autowired
+    private TransactionBatchService transactionBatchService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void insertThroughput() {
+        Account account = createAccount("1999999990", 0L);
+
+        // 건마다 커밋
+        long singleNanos = measure(() -> {
+            for (int i = 0; i < ROWS; i++) {
+                transactionRepository.save(transaction(account));
+            }
+        });
+
+        // 한 트랜잭션에서 saveAll, JDBC 배치로 나간다
+        long bulkNanos = measure(() -> transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> transactions = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                transactions.add(transaction(account));
+            }
+            transactionRepository.saveAll(transactions);
+        }));
+
+        // 묶음 출금 경로
+        Account batchAccount = createAccount("1999999991", (long) ROWS * 10);
+        List<UseBalance.Request> requests = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            requests.add(new UseBalance.Request(1L, batchAccount.getAccountNumber(), 10L));
+        }
+        List<TransactionDto> results = new ArrayList<>();
+        long batchNanos = measure(() -> results.addAll(transactionBatchService.useBalances(requests)));
+
+        report("single insert per commit", singleNanos);
+        report("saveAll in one transaction", bulkNanos);
+        report("POST /transaction/use/batch path", batchNanos);
+        assertEquals(ROWS, results.stream()
+                .filter(result -> result.getTransactionResultType() == S)
+                .count());
+    }
+
+    private Account createAccount(String accountNumber, Long balance) {
+        AccountUser accountUser = accountUserRepository.findById(1L).get();
+        return accountRepository.findByAccountNumber(accountNumber)
+                .orElseGet(() -> accountRepository.save(Account.builder()
+                        .accountUser(accountUser)
+                        .accountNumber(accountNumber)
+                        .accountStatus(IN_USE)
+                        .balance(balance)
+                        .registeredAt(LocalDateTime.now())
+                        .build()));
+    }
+
+    private static Transaction transaction(Account account) {
+        return Transaction.builder()
+                .transactionType(USE)
+                .transactionResultType(S)
+                .account(account)
+                .amount(10L)
+                .balanceSnapShot(0L)
+                .transactionId(UUID.randomUUID().toString().replace("-", ""))
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static long measure(Runnable task) {
+        long startedAt = System.nanoTime();
+        task.run();
+        return System.nanoTime() - startedAt;
+    }
+
+    private static void report(String name, long nanos) {
+        log.info("{} : {} rows, {} ms, {} rows/s", name, ROWS,
+                String.format("%.1f", nanos / 1_000_000.0),
+                String.format("%.0f", ROWS / (nanos / 1_000_000_000.0)));
+    }
+}
@@ -1,15 +1,22 @@
 package com.example.account.controller;
 
-import com.example.account.domain.Account;
+import com.example.account.config.ManagementSecurityConfig;
+import com.example.account.dto.AccountDetail;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
+import com.example.account.dto.CreateAccountBulk;
 import com.example.account.dto.DeleteAccount;
+import com.example.account.service.AccountBalanceShardService;
+import com.example.account.service.AccountEtagResolver;
 import com.example.account.service.AccountService;
 import com.example.account.service.LockService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -17,24 +24,36 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static com.example.account.type.AccountStatus.IN_USE;
+import static com.example.account.type.ErrorCode.MAX_ACCOUNT_PER_USER_10;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AccountController.class)
+@Import(ManagementSecurityConfig.class)
 class AccountControllerTest {
     @MockitoBean
     private AccountService accountService;
     @MockitoBean
     private LockService lockService;
+    @MockitoBean
+    private AccountBalanceShardService accountBalanceShardService;
+    @MockitoBean
+    private AccountEtagResolver accountEtagResolver;
 
     @Autowired
     private MockMvc mockMvc;
@@ -67,6 +86,35 @@ class AccountControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void successCreateAccountsBulk() throws Exception {
+        //given
+        given(accountService.createAccounts(anyList()))
+                .willReturn(List.of(
+                        CreateAccountBulk.Result.builder()
+                                .userId(1L)
+                                .accountNumber("1000000000")
+                                .build(),
+                        CreateAccountBulk.Result.builder()
+                                .userId(2L)
+                                .errorCode(MAX_ACCOUNT_PER_USER_10)
+                                .build()));
+        //when
+        //then
+        mockMvc.perform(post("/account/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new CreateAccountBulk.Request(List.of(
+                                        new CreateAccount.Request(1L, 10000L),
+                                        new CreateAccount.Request(2L, 10000L)))
+                        )))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].accountNumber").value("1000000000"))
+                .andExpect(jsonPath("$[0].errorCode").doesNotExist())
+                .andExpect(jsonPath("$[1].errorCode").value("MAX_ACCOUNT_PER_USER_10"))
+                .andDo(print());
+    }
+
     @Test
     void successDeleteAccount() throws Exception {
         //given
@@ -95,17 +143,17 @@ class AccountControllerTest {
     @Test
     void successGetAccountsByUserId() throws Exception {
         //given
-        List<AccountDto> accountDtos =
-                Arrays.asList(AccountDto.builder()
+        List<AccountInfo> accountInfos =
+                Arrays.asList(AccountInfo.builder()
                                 .accountNumber("123456789")
                                 .balance(1000L).build(),
-                        AccountDto.builder()
+                        AccountInfo.builder()
                                 .accountNumber("2345678901")
                                 .balance(2000L).build(),
-                        AccountDto.builder()
+                        AccountInfo.builder()
                                 .accountNumber("3456789012")
                                 .balance(3000L).build());
-        given(accountService.getAccountsByUserId(anyLong())).willReturn(accountDtos);
+        given(accountService.getAccountsByUserId(anyLong())).willReturn(accountInfos);
         //when
         //then
         mockMvc.perform(get("/account?user_id=1"))
@@ -119,13 +167,52 @@ class AccountControllerTest {
         ;
     }
 
+    @Test
+    void getAccountsByUserId_notModified() throws Exception {
+        //given
+        given(accountEtagResolver.cachedUserEtag(1L))
+                .willReturn(Optional.of("\"v1\""));
+        //when
+        //then
+        mockMvc.perform(get("/account?user_id=1").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""));
+        // Redis 의 ETag 가 같으면 목록을 읽지 않는다
+        verify(accountService, never()).getAccountsByUserId(1L);
+    }
+
+    @Test
+    void getAccountsByUserId_versionChanged() throws Exception {
+        //given
+        List<AccountInfo> accountInfos = List.of(AccountInfo.builder()
+                .accountNumber("123456789")
+                .balance(900L).build());
+        given(accountService.getAccountsByUserId(1L)).willReturn(accountInfos);
+        given(accountEtagResolver.userEtag(1L, accountInfos))
+                .willReturn(Optional.of("\"v2\""));
+        //when
+        //then
+        mockMvc.perform(get("/account?user_id=1").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""))
+                .andExpect(jsonPath("$[0].balance").value(900))
+                .andExpect(jsonPath("$[0].version").doesNotExist());
+        verify(accountService, times(1)).getAccountsByUserId(1L);
+    }
+
     @Test
     void successGetAccount() throws Exception {
         //given
+        given(accountEtagResolver.accountEtag(876L))
+                .willReturn(Optional.of("\"v1\""));
         given(accountService.getAccount(anyLong()))
-                .willReturn(Account.builder()
+                .willReturn(AccountDetail.builder()
+                        .userId(1L)
                         .accountNumber("3456")
                         .accountStatus(IN_USE)
+                        .balance(1000L)
                         .build());
         //when
         //then
@@ -133,8 +220,47 @@ class AccountControllerTest {
                 .andDo(print())
                 .andExpect(jsonPath("$.accountNumber").value("3456"))
                 .andExpect(jsonPath("$.accountStatus").value("IN_USE"))
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""))
                 .andExpect(status().isOk());
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void getAccount_notModified() throws Exception {
+        //given
+        given(accountEtagResolver.accountEtag(877L))
+                .willReturn(Optional.of("\"v1\""));
+        //when
+        //then
+        mockMvc.perform(get("/account/877").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""));
+        // 버전이 같으면 계좌를 읽지 않는다
+        verify(accountService, never()).getAccount(anyLong());
+    }
+
+    @Test
+    void getAccount_versionChanged() throws Exception {
+        //given
+        given(accountEtagResolver.accountEtag(877L))
+                .willReturn(Optional.of("\"v2\""));
+        given(accountService.getAccount(anyLong()))
+                .willReturn(AccountDetail.builder()
+                        .userId(1L)
+                        .accountNumber("3456")
+                        .accountStatus(IN_USE)
+                        .balance(900L)
+                        .build());
+        //when
+        //then
+        mockMvc.perform(get("/account/877").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""))
+                .andExpect(jsonPath("$.balance").value(900));
+        verify(accountService, times(1)).getAccount(877L);
+    }
+
+}
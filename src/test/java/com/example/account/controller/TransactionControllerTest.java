@@ -1,35 +1,87 @@
 package com.example.account.controller;
 
+import com.example.account.config.ManagementSecurityConfig;
 import com.example.account.dto.CancelBalance;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.Transfer;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.exception.AccountException;
+import com.example.account.service.FailedTransactionRecorder;
+import com.example.account.service.TransactionBatchService;
+import com.example.account.service.TransactionCache;
+import com.example.account.service.TransactionExportService;
+import com.example.account.service.TransactionHistoryService;
 import com.example.account.service.TransactionService;
+import com.example.account.service.TransactionTransferService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static com.example.account.type.ErrorCode.AMOUNT_EXCEED_BALANCE;
+import static com.example.account.type.ErrorCode.INVALID_REQUEST;
+import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.ExportFormat.CSV;
 import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.TRANSFER_OUT;
+import static com.example.account.type.TransactionType.USE;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransactionController.class)
+@Import(ManagementSecurityConfig.class)
 class TransactionControllerTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    @MockitoBean
+    private TransactionBatchService transactionBatchService;
+
+    @MockitoBean
+    private TransactionTransferService transactionTransferService;
+
+    @MockitoBean
+    private TransactionHistoryService transactionHistoryService;
+
+    @MockitoBean
+    private TransactionExportService transactionExportService;
+
+    @MockitoBean
+    private FailedTransactionRecorder failedTransactionRecorder;
+
+    @MockitoBean
+    private TransactionCache transactionCache;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -66,6 +118,146 @@ class TransactionControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void successUseBalanceAsync() throws Exception {
+        //given
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willReturn(
+                        TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactedAt(LocalDateTime.now())
+                                .amount(12345L)
+                                .transactionId("transactionId")
+                                .transactionResultType(S)
+                                .build()
+                );
+        //when
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(
+                                        1L,
+                                        "2000000000",
+                                        12345L))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        //then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.transactionResultType").value("S"))
+                .andExpect(jsonPath("$.amount").value(12345))
+                .andExpect(jsonPath("$.transactionId").value("transactionId"))
+                .andDo(print());
+    }
+
+    @Test
+    void successUseBalanceBatch() throws Exception {
+        //given
+        given(transactionBatchService.useBalances(anyList()))
+                .willReturn(List.of(
+                        TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactedAt(LocalDateTime.now())
+                                .amount(1000L)
+                                .transactionId("transactionId")
+                                .transactionResultType(S)
+                                .build(),
+                        TransactionDto.builder()
+                                .accountNumber("1000000001")
+                                .transactedAt(LocalDateTime.now())
+                                .amount(2000L)
+                                .transactionResultType(F)
+                                .build()));
+        //when
+        //then
+        mockMvc.perform(post("/transaction/use/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalanceBatch.Request(List.of(
+                                        new UseBalance.Request(1L, "1000000000", 1000L),
+                                        new UseBalance.Request(1L, "1000000001", 2000L))))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].transactionResultType").value("S"))
+                .andExpect(jsonPath("$[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$[1].accountNumber").value("1000000001"))
+                .andExpect(jsonPath("$[1].transactionResultType").value("F"))
+                .andDo(print());
+    }
+
+    @Test
+    void failedUseBalance_recordedAsync() throws Exception {
+        //given
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willThrow(new AccountException(AMOUNT_EXCEED_BALANCE));
+        //when
+        mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(
+                                        1L,
+                                        "2000000000",
+                                        12345L))))
+                .andExpect(jsonPath("$.errorCode").value("AMOUNT_EXCEED_BALANCE"))
+                .andDo(print());
+        //then
+        verify(failedTransactionRecorder, times(1))
+                .record(USE, "2000000000", 12345L);
+    }
+
+    @Test
+    void successTransfer() throws Exception {
+        //given
+        given(transactionTransferService.transfer(anyLong(), anyString(), anyString(), anyLong()))
+                .willReturn(
+                        TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactedAt(LocalDateTime.now())
+                                .amount(12345L)
+                                .transactionId("transactionId")
+                                .linkedTransactionId("linkedTransactionId")
+                                .transactionResultType(S)
+                                .build()
+                );
+        //when
+        //then
+        mockMvc.perform(post("/transaction/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new Transfer.Request(
+                                        1L,
+                                        "1000000000",
+                                        "1000000001",
+                                        12345L))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fromAccountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.toAccountNumber").value("1000000001"))
+                .andExpect(jsonPath("$.transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.linkedTransactionId").value("linkedTransactionId"))
+                .andDo(print());
+    }
+
+    @Test
+    void failedTransfer_recordsTransferOut() throws Exception {
+        //given
+        given(transactionTransferService.transfer(anyLong(), anyString(), anyString(), anyLong()))
+                .willThrow(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+        //when
+        mockMvc.perform(post("/transaction/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new Transfer.Request(
+                                        1L,
+                                        "1000000000",
+                                        "1000000001",
+                                        12345L))))
+                .andExpect(jsonPath("$.errorCode").value("ACCOUNT_TRANSACTION_LOCK"))
+                .andDo(print());
+        //then
+        verify(failedTransactionRecorder, times(1))
+                .record(TRANSFER_OUT, "1000000000", 12345L);
+    }
+
     @Test
     void successCancelBalance() throws Exception {
         //given
@@ -122,5 +314,67 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.transactionType").value("CANCEL"));
     }
 
+    @Test
+    void successGetTransactions() throws Exception {
+        //given
+        given(transactionHistoryService.getTransactions(eq("1000000000"), eq("cursor"),
+                any(), isNull(), eq(USE), eq(S), eq(2)))
+                .willReturn(TransactionHistory.Response.builder()
+                        .accountNumber("1000000000")
+                        .items(List.of(TransactionHistory.Item.builder()
+                                .transactionId("transactionId")
+                                .transactionType(USE)
+                                .transactionResultType(S)
+                                .amount(1000L)
+                                .transactedAt(LocalDateTime.now())
+                                .build()))
+                        .nextCursor("nextCursor")
+                        .build());
+        //when
+        //then
+        mockMvc.perform(get("/account/1000000000/transactions")
+                        .param("cursor", "cursor")
+                        .param("from", "2024-01-01T00:00:00")
+                        .param("transaction_type", "USE")
+                        .param("result_type", "S")
+                        .param("size", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.items[0].amount").value(1000))
+                .andExpect(jsonPath("$.nextCursor").value("nextCursor"));
+    }
 
-}
\ No newline at end of file
+    @Test
+    void successExportTransactions() throws Exception {
+        //given
+        given(transactionExportService.resolveAccountId(eq("1000000000"), isNull(), isNull()))
+                .willReturn(1L);
+        given(transactionExportService.export(eq(1L), isNull(), isNull(), eq(CSV), any()))
+                .willAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(4);
+                    out.write("transactionId\n".getBytes(StandardCharsets.UTF_8));
+                    return 0L;
+                });
+        //when
+        //then
+        mockMvc.perform(get("/transaction/export")
+                        .param("account_number", "1000000000")
+                        .param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("transactionId\n"));
+    }
+
+    @Test
+    void exportTransactions_invalidRequest() throws Exception {
+        //given
+        given(transactionExportService.resolveAccountId(isNull(), isNull(), isNull()))
+                .willThrow(new AccountException(INVALID_REQUEST));
+        //when
+        //then
+        mockMvc.perform(get("/transaction/export"))
+                .andExpect(jsonPath("$.errorCode").value("INVALID_REQUEST"));
+        verify(transactionExportService, never()).export(any(), any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountBalanceSlot;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountBalanceSlotRepository;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.AccountStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_ALREADY_SHARDED;
+import static com.example.account.type.ErrorCode.AMOUNT_EXCEED_BALANCE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountBalanceShardServiceTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private AccountBalanceSlotRepository accountBalanceSlotRepository;
+    @Mock
+    private AccountEtagResolver accountEtagResolver;
+
+    private AccountBalanceShardService accountBalanceShardService;
+
+    @BeforeEach
+    void setUp() {
+        accountBalanceShardService = new AccountBalanceShardService(accountRepository,
+                accountBalanceSlotRepository, accountEtagResolver, 100, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enableSharding_spreadsBalance() {
+        //given
+        TransactionSynchronizationManager.initSynchronization();
+        Account account = account(10003L, null);
+        given(accountRepository.findByAccountNumber(anyString())).willReturn(Optional.of(account));
+        ArgumentCaptor<List<AccountBalanceSlot>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        AccountDto accountDto = accountBalanceShardService.enableSharding(12L, "1000000012", 4);
+        //then
+        verify(accountBalanceSlotRepository, times(1)).saveAll(captor.capture());
+        List<AccountBalanceSlot> slots = captor.getValue();
+        assertEquals(4, slots.size());
+        assertEquals(2501L, slots.get(0).getBalance());
+        assertEquals(2500L, slots.get(3).getBalance());
+        assertEquals(10003L, slots.stream().mapToLong(AccountBalanceSlot::getBalance).sum());
+        assertEquals(0L, account.getBalance());
+        assertEquals(4, account.getShardCount());
+        assertEquals(10003L, accountDto.getBalance());
+        // 커밋 전에는 락을 건너뛰지 않는다
+        assertFalse(accountBalanceShardService.isSharded("1000000012"));
+    }
+
+    @Test
+    void enableSharding_alreadySharded() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account(0L, 4)));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceShardService.enableSharding(12L, "1000000012", 4));
+        //then
+        assertEquals(ACCOUNT_ALREADY_SHARDED, exception.getErrorCode());
+    }
+
+    @Test
+    void isSharded_cachesUnshardedAccounts() {
+        //given
+        given(accountRepository.findShardCountByAccountNumber("1000000012"))
+                .willReturn(Optional.of(1));
+
+        //when
+        boolean first = accountBalanceShardService.isSharded("1000000012");
+        boolean second = accountBalanceShardService.isSharded("1000000012");
+        //then
+        assertFalse(first);
+        assertFalse(second);
+        // 락 경로에서 요청마다 DB 를 읽지 않는다
+        verify(accountRepository, times(1)).findShardCountByAccountNumber("1000000012");
+    }
+
+    @Test
+    void isSharded_readsShardCountAfterTtl() {
+        //given
+        accountBalanceShardService = new AccountBalanceShardService(accountRepository,
+                accountBalanceSlotRepository, accountEtagResolver, 100, Duration.ZERO);
+        given(accountRepository.findShardCountByAccountNumber("1000000012"))
+                .willReturn(Optional.empty(), Optional.of(4));
+
+        //when
+        // 다른 노드에서 분할된 뒤에도 TTL 이 지나면 이 노드가 알아챈다
+        boolean before = accountBalanceShardService.isSharded("1000000012");
+        boolean after = accountBalanceShardService.isSharded("1000000012");
+        boolean cached = accountBalanceShardService.isSharded("1000000012");
+        //then
+        assertFalse(before);
+        assertTrue(after);
+        assertTrue(cached);
+        verify(accountRepository, times(2)).findShardCountByAccountNumber("1000000012");
+    }
+
+    @Test
+    void debit_fromSingleSlot() {
+        //given
+        Account account = account(0L, 4);
+        given(accountBalanceSlotRepository.debit(eq(1L), anyInt(), eq(1000L))).willReturn(1);
+
+        //when
+        accountBalanceShardService.debit(account, 1000L);
+        //then
+        verify(accountBalanceSlotRepository, times(1)).debit(eq(1L), anyInt(), eq(1000L));
+        verify(accountBalanceSlotRepository, never()).findAllForUpdate(anyLong());
+    }
+
+    @Test
+    void debit_rebalanceWhenNoSlotIsEnough() {
+        //given
+        Account account = account(0L, 2);
+        AccountBalanceSlot first = slot(account, 0, 600L);
+        AccountBalanceSlot second = slot(account, 1, 600L);
+        given(accountBalanceSlotRepository.debit(eq(1L), anyInt(), eq(1000L))).willReturn(0);
+        given(accountBalanceSlotRepository.findAllForUpdate(1L)).willReturn(List.of(first, second));
+
+        //when
+        accountBalanceShardService.debit(account, 1000L);
+        //then
+        assertEquals(100L, first.getBalance());
+        assertEquals(100L, second.getBalance());
+    }
+
+    @Test
+    void debit_exceedTotalBalance() {
+        //given
+        Account account = account(0L, 2);
+        given(accountBalanceSlotRepository.debit(eq(1L), anyInt(), eq(2000L))).willReturn(0);
+        given(accountBalanceSlotRepository.findAllForUpdate(1L)).willReturn(
+                List.of(slot(account, 0, 600L), slot(account, 1, 600L)));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceShardService.debit(account, 2000L));
+        //then
+        assertEquals(AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    private static Account account(Long balance, Integer shardCount) {
+        AccountUser tester = AccountUser.builder()
+                .name("tester")
+                .build();
+        tester.setId(12L);
+        Account account = Account.builder()
+                .accountUser(tester)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .balance(balance)
+                .shardCount(shardCount)
+                .build();
+        account.setId(1L);
+        return account;
+    }
+
+    private static AccountBalanceSlot slot(Account account, int slotIndex, Long balance) {
+        return AccountBalanceSlot.builder()
+                .account(account)
+                .slotIndex(slotIndex)
+                .balance(balance)
+                .build();
+    }
+}
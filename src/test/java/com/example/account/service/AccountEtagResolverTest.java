@@ -0,0 +1,215 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountInfo;
+import com.example.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class AccountEtagResolverTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private ObjectProvider<RedissonClient> redissonClientProvider;
+    @Mock
+    private RedissonClient redissonClient;
+    @Mock
+    private RBucket<Object> bucket;
+    @Mock
+    private RBatch batch;
+    @Mock
+    private RBucketAsync<Object> batchBucket;
+
+    private AccountEtagResolver accountEtagResolver;
+
+    @BeforeEach
+    void setUp() {
+        // Redis 를 쓰지 않으면 매번 DB 의 계좌 버전으로 만든다
+        accountEtagResolver = new AccountEtagResolver(accountRepository, false,
+                Duration.ofMinutes(5), redissonClientProvider);
+    }
+
+    @Test
+    void accountEtag_followsVersion() {
+        //given
+        given(accountRepository.findVersionViewById(1L))
+                .willReturn(Optional.of(view(1L, 3L, 0L)))
+                .willReturn(Optional.of(view(1L, 3L, 0L)))
+                .willReturn(Optional.of(view(1L, 4L, 0L)));
+        //when
+        String first = accountEtagResolver.accountEtag(1L).get();
+        String same = accountEtagResolver.accountEtag(1L).get();
+        String changed = accountEtagResolver.accountEtag(1L).get();
+        //then
+        assertEquals(first, same);
+        assertNotEquals(first, changed);
+    }
+
+    @Test
+    @DisplayName("분할된 계좌는 버전이 같아도 슬롯 잔액이 바뀌면 ETag 가 바뀜")
+    void accountEtag_shardedSlotChanged() {
+        //given
+        given(accountRepository.findVersionViewById(1L))
+                .willReturn(Optional.of(view(1L, 3L, 10000L)))
+                .willReturn(Optional.of(view(1L, 3L, 9000L)));
+        //when
+        String before = accountEtagResolver.accountEtag(1L).get();
+        String after = accountEtagResolver.accountEtag(1L).get();
+        //then
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void accountEtag_accountNotFound() {
+        //given
+        given(accountRepository.findVersionViewById(1L))
+                .willReturn(Optional.empty());
+        //when
+        //then
+        assertTrue(accountEtagResolver.accountEtag(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Redis 에 ETag 가 있으면 DB 를 읽지 않음")
+    void accountEtag_redisHitSkipsDb() {
+        //given
+        AccountEtagResolver redisResolver = redisResolver();
+        given(redissonClient.getBucket(eq("account-etag:1"), any(Codec.class))).willReturn(bucket);
+        given(bucket.get()).willReturn("\"cached\"");
+        //when
+        Optional<String> etag = redisResolver.accountEtag(1L);
+        //then
+        assertEquals("\"cached\"", etag.get());
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    @DisplayName("Redis 에 없으면 버전으로 만든 ETag 를 없을 때만 넣고, 그 사이 바뀌었으면 ETag 를 주지 않음")
+    void accountEtag_redisMissOffersVersionEtag() {
+        //given
+        AccountEtagResolver redisResolver = redisResolver();
+        given(redissonClient.getBucket(eq("account-etag:1"), any(Codec.class))).willReturn(bucket);
+        given(bucket.get()).willReturn(null);
+        given(accountRepository.findVersionViewById(1L))
+                .willReturn(Optional.of(view(1L, 3L, 0L)));
+        given(bucket.setIfAbsent(any(), any(Duration.class))).willReturn(true, false);
+        //when
+        Optional<String> stored = redisResolver.accountEtag(1L);
+        Optional<String> raced = redisResolver.accountEtag(1L);
+        //then
+        assertTrue(stored.isPresent());
+        assertTrue(raced.isEmpty());
+    }
+
+    @Test
+    @DisplayName("계좌가 바뀌면 커밋 뒤 계좌와 사용자의 ETag 를 한 번에 새 값으로 바꿈")
+    void changedAfterCommit_renewsAccountAndUser() {
+        //given
+        AccountEtagResolver redisResolver = redisResolver();
+        given(redissonClient.createBatch()).willReturn(batch);
+        given(batch.getBucket(anyString(), any(Codec.class))).willReturn(batchBucket);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            redisResolver.changedAfterCommit(1L, 12L);
+            verify(batch, never()).execute();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        //then
+        verify(batch).getBucket(eq("account-etag:1"), any(Codec.class));
+        verify(batch).getBucket(eq("user-accounts-etag:12"), any(Codec.class));
+        verify(batch, times(1)).execute();
+    }
+
+    @Test
+    void userEtag_changesWithAnyAccount() {
+        //given
+        List<AccountInfo> first = List.of(info(1L, 3L, 0L), info(2L, 1L, 0L));
+        List<AccountInfo> same = List.of(info(1L, 3L, 0L), info(2L, 1L, 0L));
+        List<AccountInfo> updated = List.of(info(1L, 3L, 0L), info(2L, 2L, 0L));
+        List<AccountInfo> added = List.of(info(1L, 3L, 0L), info(2L, 2L, 0L), info(5L, 0L, 0L));
+        //when
+        String firstEtag = accountEtagResolver.userEtag(12L, first).get();
+        String sameEtag = accountEtagResolver.userEtag(12L, same).get();
+        String updatedEtag = accountEtagResolver.userEtag(12L, updated).get();
+        String addedEtag = accountEtagResolver.userEtag(12L, added).get();
+        Optional<String> empty = accountEtagResolver.userEtag(12L, List.of());
+        //then
+        assertEquals(firstEtag, sameEtag);
+        assertNotEquals(firstEtag, updatedEtag);
+        assertNotEquals(updatedEtag, addedEtag);
+        assertTrue(empty.isEmpty());
+        // 목록 ETag 는 조회 결과로 만들고 따로 읽지 않는다
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void matches() {
+        assertTrue(AccountEtagResolver.matches("\"a\", \"b\"", "\"b\""));
+        assertTrue(AccountEtagResolver.matches("W/\"b\"", "\"b\""));
+        assertTrue(AccountEtagResolver.matches("*", "\"b\""));
+        assertFalse(AccountEtagResolver.matches("\"a\"", "\"b\""));
+        assertFalse(AccountEtagResolver.matches(null, "\"b\""));
+    }
+
+    private AccountEtagResolver redisResolver() {
+        given(redissonClientProvider.getIfAvailable()).willReturn(redissonClient);
+        return new AccountEtagResolver(accountRepository, true, Duration.ofMinutes(5),
+                redissonClientProvider);
+    }
+
+    private static AccountInfo info(Long id, Long version, Long slotBalance) {
+        return new AccountInfo(id, version, "100000000" + id, 1000L, slotBalance);
+    }
+
+    private static AccountRepository.VersionView view(Long id, Long version, Long slotBalance) {
+        return new AccountRepository.VersionView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+
+            @Override
+            public Long getSlotBalance() {
+                return slotBalance;
+            }
+        };
+    }
+}
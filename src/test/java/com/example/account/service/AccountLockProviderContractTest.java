@@ -0,0 +1,115 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.exception.AccountException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 모든 AccountLockProvider 구현체가 지켜야 하는 공통 계약
+ */
+abstract class AccountLockProviderContractTest {
+    protected static final String ACCOUNT_NUMBER = "1000000000";
+    protected static final String OTHER_ACCOUNT_NUMBER = "1000000001";
+    protected static final LockPolicy POLICY = LockPolicy.builder()
+            .name("contract")
+            .waitTime(300L)
+            .leaseTime(5000L)
+            .fair(false)
+            .build();
+
+    private final ExecutorService otherNode = Executors.newSingleThreadExecutor();
+
+    protected abstract AccountLockProvider lockProvider();
+
+    /**
+     * 경쟁 요청을 보내는 쪽, 분산 락이면 다른 노드를 흉내 낸 별도 인스턴스를 돌려준다
+     */
+    protected AccountLockProvider otherLockProvider() {
+        return lockProvider();
+    }
+
+    @AfterEach
+    void shutdownOtherNode() {
+        otherNode.shutdownNow();
+    }
+
+    @Test
+    void lockAndUnlock() {
+        //given
+        //when
+        assertDoesNotThrow(() -> lockProvider().lock(ACCOUNT_NUMBER, POLICY));
+        //then
+        assertDoesNotThrow(() -> lockProvider().unlock(ACCOUNT_NUMBER, POLICY));
+    }
+
+    @Test
+    void failLockHeldByOther() throws Exception {
+        //given
+        otherNode.submit(() -> otherLockProvider().lock(ACCOUNT_NUMBER, POLICY)).get();
+        try {
+            //when
+            AccountException exception = assertThrows(AccountException.class,
+                    () -> lockProvider().lock(ACCOUNT_NUMBER, POLICY));
+            //then
+            assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        } finally {
+            otherNode.submit(() -> otherLockProvider().unlock(ACCOUNT_NUMBER, POLICY)).get();
+        }
+    }
+
+    @Test
+    void failLockHeldByOtherWithinWaitTime() throws Exception {
+        //given
+        otherNode.submit(() -> otherLockProvider().lock(ACCOUNT_NUMBER, POLICY)).get();
+        try {
+            //when
+            long startedAt = System.nanoTime();
+            assertThrows(AccountException.class,
+                    () -> lockProvider().lock(ACCOUNT_NUMBER, POLICY));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            //then
+            // 저장소의 기본 대기시간이 아니라 정책의 waitTime 만큼만 기다린다
+            assertTrue(elapsed < POLICY.getWaitTime() + 1500L, "waited " + elapsed + "ms");
+        } finally {
+            otherNode.submit(() -> otherLockProvider().unlock(ACCOUNT_NUMBER, POLICY)).get();
+        }
+    }
+
+    @Test
+    void lockAfterReleasedByOther() throws Exception {
+        //given
+        otherNode.submit(() -> {
+            otherLockProvider().lock(ACCOUNT_NUMBER, POLICY);
+            otherLockProvider().unlock(ACCOUNT_NUMBER, POLICY);
+        }).get();
+        //when
+        assertDoesNotThrow(() -> lockProvider().lock(ACCOUNT_NUMBER, POLICY));
+        //then
+        lockProvider().unlock(ACCOUNT_NUMBER, POLICY);
+    }
+
+    @Test
+    void otherAccountIsNotBlocked() throws Exception {
+        //given
+        otherNode.submit(() -> otherLockProvider().lock(ACCOUNT_NUMBER, POLICY)).get();
+        try {
+            //when
+            assertDoesNotThrow(() -> lockProvider().lock(OTHER_ACCOUNT_NUMBER, POLICY));
+            //then
+            lockProvider().unlock(OTHER_ACCOUNT_NUMBER, POLICY);
+        } finally {
+            otherNode.submit(() -> otherLockProvider().unlock(ACCOUNT_NUMBER, POLICY)).get();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_NUMBER_EXHAUSTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberAllocatorTest {
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Test
+    void allocateFromReservedBlock() {
+        //given
+        given(accountRepository.nextAccountNumberBlock()).willReturn(0L, 1L);
+        AccountNumberAllocator allocator = new AccountNumberAllocator(accountRepository, 2);
+
+        //when
+        String first = allocator.allocate();
+        String second = allocator.allocate();
+        String third = allocator.allocate();
+        //then
+        assertEquals("1000000000", first);
+        assertEquals("1000000001", second);
+        assertEquals("1000000002", third);
+        verify(accountRepository, times(2)).nextAccountNumberBlock();
+    }
+
+    @Test
+    void concurrentAllocate_noDuplicate() throws InterruptedException {
+        //given
+        AtomicLong blocks = new AtomicLong();
+        given(accountRepository.nextAccountNumberBlock())
+                .willAnswer(invocation -> blocks.getAndIncrement());
+        AccountNumberAllocator allocator = new AccountNumberAllocator(accountRepository, 100);
+        Set<String> allocated = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    allocated.add(allocator.allocate());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        //then
+        assertEquals(8000, allocated.size());
+        assertEquals(80L, blocks.get());
+    }
+
+    @Test
+    void allocate_exhausted() {
+        //given
+        given(accountRepository.nextAccountNumberBlock()).willReturn(90_000_000L);
+        AccountNumberAllocator allocator = new AccountNumberAllocator(accountRepository, 100);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, allocator::allocate);
+        //then
+        assertEquals(ACCOUNT_NUMBER_EXHAUSTED, exception.getErrorCode());
+    }
+}
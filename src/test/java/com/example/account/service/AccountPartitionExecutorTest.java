@@ -0,0 +1,100 @@
+package com.example.account.service;
+
+import com.example.account.dto.PartitionQueueInfo;
+import com.example.account.exception.AccountException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountPartitionExecutorTest {
+    private final AccountPartitionExecutor executor = new AccountPartitionExecutor(4, 1);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Test
+    void sameAccountRunsSerially() throws Exception {
+        //given
+        AccountPartitionExecutor wideExecutor = new AccountPartitionExecutor(4, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 50; i++) {
+            futures.add(wideExecutor.submit("1000000000", 0L, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                running.decrementAndGet();
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .get(5, TimeUnit.SECONDS);
+        //then
+        assertEquals(1, maxRunning.get());
+        wideExecutor.shutdown();
+    }
+
+    @Test
+    void rejectWhenQueueIsFull() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("1000000000", 0L, () -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        started.await(5, TimeUnit.SECONDS);
+        executor.submit("1000000000", 0L, () -> null);
+
+        //when
+        CompletableFuture<Object> rejected = executor.submit("1000000000", 0L, () -> null);
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(AccountException.class, exception.getCause());
+        assertEquals(ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        int partition = executor.partitionOf("1000000000");
+        PartitionQueueInfo info = executor.getQueueInfos().get(partition);
+        assertEquals(1, info.getQueueDepth());
+        assertEquals(1L, info.getRejectedCount());
+        release.countDown();
+    }
+
+    @Test
+    void expireWhenQueuedTooLong() throws Exception {
+        //given
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("1000000000", 0L, () -> {
+            started.countDown();
+            Thread.sleep(100L);
+            return null;
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        //when
+        CompletableFuture<Object> expired = executor.submit("1000000000", 10L, () -> "late");
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> expired.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AccountException.class, exception.getCause());
+        assertTrue(executor.getQueueInfos().get(executor.partitionOf("1000000000"))
+                .getExpiredCount() >= 1L);
+    }
+}
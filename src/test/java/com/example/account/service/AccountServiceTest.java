@@ -2,7 +2,11 @@ package com.example.account.service;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountDetail;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.CreateAccount;
+import com.example.account.dto.CreateAccountBulk;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
@@ -16,14 +20,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -33,6 +42,12 @@ class AccountServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private AccountUserRepository accountUserRepository;
+    @Mock
+    private AccountBalanceShardService accountBalanceShardService;
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+    @Mock
+    private AccountEtagResolver accountEtagResolver;
     @InjectMocks
     private AccountService accountService;
 
@@ -48,12 +63,8 @@ class AccountServiceTest {
                         tester)
         );
 
-        given(accountRepository.findFirstByOrderByIdDesc()).willReturn(
-                Optional.of(
-                        Account.builder()
-                                .accountNumber("1000000012")
-                                .build())
-        );
+        given(accountUserRepository.incrementAccountCount(12L, 10)).willReturn(1);
+        given(accountNumberAllocator.allocate()).willReturn("1000000013");
         given(accountRepository.save(any())).willReturn(
                 Account.builder()
                         .accountUser(tester)
@@ -83,9 +94,8 @@ class AccountServiceTest {
                         tester)
         );
 
-        given(accountRepository.findFirstByOrderByIdDesc()).willReturn(
-                Optional.empty()
-        );
+        given(accountUserRepository.incrementAccountCount(12L, 10)).willReturn(1);
+        given(accountNumberAllocator.allocate()).willReturn("1000000000");
         given(accountRepository.save(any())).willReturn(
                 Account.builder()
                         .accountUser(tester)
@@ -128,7 +138,7 @@ class AccountServiceTest {
                 Optional.of(
                         tester)
         );
-        given(accountRepository.countByAccountUser(any())).willReturn(10);
+        given(accountUserRepository.incrementAccountCount(12L, 10)).willReturn(0);
         //when
         AccountException exception = assertThrows(AccountException.class,
                 () -> accountService.createAccount(1L, 10000L));
@@ -136,6 +146,46 @@ class AccountServiceTest {
         assertEquals(ErrorCode.MAX_ACCOUNT_PER_USER_10, exception.getErrorCode());
     }
 
+    @Test
+    @DisplayName("계좌 일괄 생성 - 없는 사용자와 최대 계좌 초과 항목만 실패")
+    void createAccountsBulk() {
+        //given
+        AccountUser almostFull = AccountUser.builder()
+                .name("almostFull")
+                .accountCount(9)
+                .build();
+        almostFull.setId(12L);
+        AccountUser newUser = AccountUser.builder()
+                .name("newUser")
+                .accountCount(0)
+                .build();
+        newUser.setId(13L);
+        given(accountUserRepository.findAllForUpdate(anyCollection()))
+                .willReturn(List.of(almostFull, newUser));
+        given(accountNumberAllocator.allocate(2))
+                .willReturn(List.of("1000000100", "1000000101"));
+
+        ArgumentCaptor<List<Account>> captor = ArgumentCaptor.forClass(List.class);
+        //when
+        List<CreateAccountBulk.Result> results = accountService.createAccounts(List.of(
+                new CreateAccount.Request(12L, 1000L),
+                new CreateAccount.Request(12L, 2000L),
+                new CreateAccount.Request(13L, 3000L),
+                new CreateAccount.Request(14L, 4000L)));
+        //then
+        verify(accountRepository, times(1)).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(3000L, captor.getValue().get(1).getBalance());
+        assertEquals("1000000100", results.get(0).getAccountNumber());
+        assertNull(results.get(0).getErrorCode());
+        assertEquals(ErrorCode.MAX_ACCOUNT_PER_USER_10, results.get(1).getErrorCode());
+        assertNull(results.get(1).getAccountNumber());
+        assertEquals("1000000101", results.get(2).getAccountNumber());
+        assertEquals(ErrorCode.USER_NOT_FOUND, results.get(3).getErrorCode());
+        assertEquals(10, almostFull.getAccountCount());
+        assertEquals(1, newUser.getAccountCount());
+    }
+
     @Test
     void deleteAccountSuccess() {
         //given
@@ -166,6 +216,7 @@ class AccountServiceTest {
         assertEquals(12L, accountDto.getUserId());
         assertEquals("1000000012", captor.getValue().getAccountNumber());
         assertEquals(AccountStatus.UNREGISTERED, captor.getValue().getAccountStatus());
+        verify(accountUserRepository, times(1)).decrementAccountCount(12L);
     }
 
     @Test
@@ -287,4 +338,76 @@ class AccountServiceTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("계좌 조회 - 사용자는 읽지 않고 id 만 씀")
+    void getAccount() {
+        //given
+        AccountUser tester = AccountUser.builder()
+                .name("tester")
+                .build();
+        tester.setId(12L);
+        Account account = Account.builder()
+                .accountUser(tester)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(3000L)
+                .accountNumber("1000000012")
+                .build();
+        account.setId(876L);
+        given(accountRepository.findById(876L)).willReturn(Optional.of(account));
+        //when
+        AccountDetail accountDetail = accountService.getAccount(876L);
+        //then
+        assertEquals(12L, accountDetail.getUserId());
+        assertEquals("1000000012", accountDetail.getAccountNumber());
+        assertEquals(3000L, accountDetail.getBalance());
+        verify(accountUserRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getAccount_AccountNotFound() {
+        //given
+        given(accountRepository.findById(876L)).willReturn(Optional.empty());
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountService.getAccount(876L));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("계좌 목록 - 사용자 확인과 조회를 쿼리 하나로")
+    void getAccountsByUserId() {
+        //given
+        given(accountRepository.findAccountInfosByUserId(12L)).willReturn(List.of(
+                new AccountInfo("1000000012", 1000L),
+                new AccountInfo("1000000013", 2000L)));
+        //when
+        List<AccountInfo> accountInfos = accountService.getAccountsByUserId(12L);
+        //then
+        assertEquals(2, accountInfos.size());
+        assertEquals("1000000013", accountInfos.get(1).getAccountNumber());
+        verify(accountUserRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getAccountsByUserId_noAccount() {
+        //given
+        given(accountRepository.findAccountInfosByUserId(12L))
+                .willReturn(List.of(new AccountInfo(null, null)));
+        //when
+        List<AccountInfo> accountInfos = accountService.getAccountsByUserId(12L);
+        //then
+        assertTrue(accountInfos.isEmpty());
+    }
+
+    @Test
+    void getAccountsByUserId_UserNotFound() {
+        //given
+        given(accountRepository.findAccountInfosByUserId(12L)).willReturn(List.of());
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountService.getAccountsByUserId(12L));
+        //then
+        assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
+    }
+}
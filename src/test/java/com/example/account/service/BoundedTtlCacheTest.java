@@ -0,0 +1,44 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    void evictOldestWhenFull() {
+        //given
+        BoundedTtlCache<String, Long> cache = new BoundedTtlCache<>(2, 1, TimeUnit.HOURS);
+
+        //when
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        cache.put("c", 3L);
+        //then
+        assertFalse(cache.get("a").isPresent());
+        assertEquals(3L, cache.get("c").get());
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.getEvictionCount());
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+    }
+
+    @Test
+    void expireAfterTtl() throws InterruptedException {
+        //given
+        BoundedTtlCache<String, Long> cache = new BoundedTtlCache<>(10, 20, TimeUnit.MILLISECONDS);
+        cache.put("a", 1L);
+        assertTrue(cache.get("a").isPresent());
+
+        //when
+        Thread.sleep(50L);
+        //then
+        assertFalse(cache.get("a").isPresent());
+        assertEquals(1L, cache.getExpirationCount());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.account.service;
+
+import com.example.account.dto.FailedTransactionQueueInfo;
+import com.example.account.dto.FailedTransactionRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FailedTransactionRecorderTest {
+    @Mock
+    private TransactionService transactionService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushInBatches() throws InterruptedException {
+        //given
+        FailedTransactionRecorder recorder =
+                new FailedTransactionRecorder(transactionService, 100, 50, 10L);
+        recorder.record(USE, "1000000000", 1000L);
+        recorder.record(CANCEL, "1000000001", 2000L);
+        ArgumentCaptor<List<FailedTransactionRecord>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        recorder.start();
+        //then
+        verify(transactionService, timeout(1000L).atLeastOnce()).saveFailedTransactions(captor.capture());
+        recorder.shutdown();
+        assertEquals(2, captor.getAllValues().stream().mapToInt(List::size).sum());
+        assertEquals(USE, captor.getAllValues().get(0).get(0).getTransactionType());
+        assertEquals(2L, recorder.getQueueInfo().getWrittenCount());
+    }
+
+    @Test
+    void dropWhenQueueIsFull() throws InterruptedException {
+        //given
+        FailedTransactionRecorder recorder =
+                new FailedTransactionRecorder(transactionService, 2, 50, 10L);
+
+        //when
+        recorder.record(USE, "1000000000", 1000L);
+        recorder.record(USE, "1000000000", 1000L);
+        recorder.record(USE, "1000000000", 1000L);
+        FailedTransactionQueueInfo info = recorder.getQueueInfo();
+        //then
+        assertEquals(2, info.getQueueDepth());
+        assertEquals(2L, info.getRecordedCount());
+        assertEquals(1L, info.getDroppedCount());
+
+        // 작업 스레드 없이 종료해도 남은 기록을 저장한다
+        recorder.shutdown();
+        verify(transactionService, atLeastOnce()).saveFailedTransactions(anyList());
+        assertEquals(0, recorder.getQueueInfo().getQueueDepth());
+        assertEquals(2L, recorder.getQueueInfo().getWrittenCount());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.account.service;
+
+import com.example.account.config.FaultInjectionProperties;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.LatencyDistribution;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FaultInjectorTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(FaultInjectionPropertiesConfig.class);
+
+    @Test
+    void invalidRuleRejectedOnBinding() {
+        //given
+        //when
+        //then
+        contextRunner.withPropertyValues("account.fault.rules.db.error-rate=5.0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        contextRunner.withPropertyValues("account.fault.rules.db.latency-millis=-1")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        contextRunner.withPropertyValues("account.fault.rules.db.error-rate=0.5")
+                .run(context -> assertEquals(0.5, context.getBean(FaultInjectionProperties.class)
+                        .getRules().get("db").getErrorRate()));
+    }
+
+    @Test
+    void injectError() {
+        //given
+        FaultInjectionProperties properties = new FaultInjectionProperties();
+        properties.setRules(Map.of("useBalance", FaultInjectionProperties.Rule.builder()
+                .errorRate(1.0)
+                .errorCode(ErrorCode.ACCOUNT_TRANSACTION_LOCK)
+                .build()));
+        FaultInjector faultInjector = new FaultInjector(properties);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> faultInjector.inject("useBalance"));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertDoesNotThrow(() -> faultInjector.inject("cancelBalance"));
+    }
+
+    @Test
+    void latencyDistributions() {
+        //given
+        Random random = new Random(42L);
+        FaultInjectionProperties.Rule uniform = FaultInjectionProperties.Rule.builder()
+                .distribution(LatencyDistribution.UNIFORM)
+                .minLatencyMillis(50L)
+                .latencyMillis(100L)
+                .build();
+        FaultInjectionProperties.Rule exponential = FaultInjectionProperties.Rule.builder()
+                .distribution(LatencyDistribution.EXPONENTIAL)
+                .latencyMillis(100L)
+                .maxLatencyMillis(300L)
+                .build();
+
+        //when
+        //then
+        for (int i = 0; i < 1000; i++) {
+            long uniformLatency = FaultInjector.latencyOf(uniform, random);
+            long exponentialLatency = FaultInjector.latencyOf(exponential, random);
+            assertTrue(uniformLatency >= 50L && uniformLatency <= 100L);
+            assertTrue(exponentialLatency >= 0L && exponentialLatency <= 300L);
+        }
+        assertEquals(100L, FaultInjector.latencyOf(FaultInjectionProperties.Rule.builder()
+                .latencyMillis(100L)
+                .build(), random));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(FaultInjectionProperties.class)
+    static class FaultInjectionPropertiesConfig {
+    }
+}
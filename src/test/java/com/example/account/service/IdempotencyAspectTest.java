@@ -0,0 +1,187 @@
+package com.example.account.service;
+
+import com.example.account.aop.Idempotent;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static com.example.account.type.ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS;
+import static com.example.account.type.ErrorCode.IDEMPOTENCY_KEY_REUSED;
+import static com.example.account.type.ErrorCode.INTERNAL_SERVER_ERROR;
+import static com.example.account.type.ErrorCode.TRANSACTION_OUTCOME_UNKNOWN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyAspectTest {
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+    @Mock
+    private MethodSignature methodSignature;
+
+    private IdempotencyStore idempotencyStore;
+    private IdempotencyAspect idempotencyAspect;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        idempotencyStore = new IdempotencyStore(100, Duration.ofMinutes(1), Duration.ofSeconds(30),
+                false, mock(ObjectProvider.class), mock(ObjectProvider.class));
+        idempotencyAspect = new IdempotencyAspect(idempotencyStore, new ObjectMapper());
+        request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        given(proceedingJoinPoint.getSignature()).willReturn(methodSignature);
+        given(methodSignature.getReturnType()).willReturn((Class) String.class);
+        given(proceedingJoinPoint.getArgs())
+                .willReturn(new Object[]{new UseBalance.Request(1L, "1000000000", 1000L)});
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void replayStoredResponse() throws Throwable {
+        //given
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-1");
+        given(proceedingJoinPoint.proceed()).willReturn("first");
+
+        //when
+        Object first = idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent());
+        Object second = idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent());
+        //then
+        assertEquals("first", first);
+        assertEquals("first", second);
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void failedRequestIsNotStored() throws Throwable {
+        //given
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-2");
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ACCOUNT_TRANSACTION_LOCK))
+                .willReturn("retried");
+
+        //when
+        assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent()));
+        Object retried = idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent());
+        //then
+        assertEquals("retried", retried);
+        verify(proceedingJoinPoint, times(2)).proceed();
+    }
+
+    @Test
+    void postCommitFailureIsNotRetried() throws Throwable {
+        //given
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-6");
+        // 커밋 뒤 락 해제에서 난 오류처럼 잔액 변경 여부를 알 수 없는 실패
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new IllegalMonitorStateException("lock lease expired"))
+                .willReturn("retried");
+
+        //when
+        assertThrows(IllegalMonitorStateException.class,
+                () -> idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent()));
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent()));
+        //then
+        assertEquals(INTERNAL_SERVER_ERROR, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void outcomeUnknownIsNotRetried() throws Throwable {
+        //given
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-7");
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(TRANSACTION_OUTCOME_UNKNOWN));
+
+        //when
+        assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent()));
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent()));
+        //then
+        assertEquals(TRANSACTION_OUTCOME_UNKNOWN, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void rejectWhileInProgress() {
+        //given
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-3");
+        idempotencyStore.begin("test:1:1000000000:key-3");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent()));
+        //then
+        assertEquals(IDEMPOTENCY_KEY_IN_PROGRESS, exception.getErrorCode());
+    }
+
+    @Test
+    void sameKeyFromOtherUserIsNotReplayed() throws Throwable {
+        //given
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-4");
+        given(proceedingJoinPoint.proceed()).willReturn("first", "second");
+
+        //when
+        Object first = idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent());
+        given(proceedingJoinPoint.getArgs())
+                .willReturn(new Object[]{new UseBalance.Request(2L, "1000000001", 1000L)});
+        Object second = idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent());
+        //then
+        assertEquals("first", first);
+        assertEquals("second", second);
+        verify(proceedingJoinPoint, times(2)).proceed();
+    }
+
+    @Test
+    void rejectReusedKeyWithDifferentBody() throws Throwable {
+        //given
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-5");
+        given(proceedingJoinPoint.proceed()).willReturn("first");
+        idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent());
+        given(proceedingJoinPoint.getArgs())
+                .willReturn(new Object[]{new UseBalance.Request(1L, "1000000000", 2000L)});
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundIdempotent(proceedingJoinPoint, idempotent()));
+        //then
+        assertEquals(IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Idempotent("test")
+    private static void idempotentMethod() {
+    }
+
+    private static Idempotent idempotent() throws NoSuchMethodException {
+        return IdempotencyAspectTest.class.getDeclaredMethod("idempotentMethod")
+                .getAnnotation(Idempotent.class);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+
+import static com.example.account.type.AccountStatus.IN_USE;
+
+// H2 의 기본 대기시간을 정책의 waitTime 보다 길게 두어서 provider 가 waitTime 을 직접 적용하는지 본다
+@SpringBootTest(properties = {
+        "account.lock.provider=jdbc",
+        "spring.datasource.url=jdbc:h2:mem:jdbc-lock;LOCK_TIMEOUT=10000"
+})
+class JdbcAccountLockProviderTest extends AccountLockProviderContractTest {
+    @Autowired
+    private AccountLockProvider accountLockProvider;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @BeforeEach
+    void setUp() {
+        createAccountIfAbsent(ACCOUNT_NUMBER);
+        createAccountIfAbsent(OTHER_ACCOUNT_NUMBER);
+    }
+
+    private void createAccountIfAbsent(String accountNumber) {
+        if (accountRepository.findByAccountNumber(accountNumber).isPresent()) {
+            return;
+        }
+        accountRepository.save(Account.builder()
+                .accountUser(accountUserRepository.findById(1L).get())
+                .accountNumber(accountNumber)
+                .accountStatus(IN_USE)
+                .balance(0L)
+                .registeredAt(LocalDateTime.now())
+                .build());
+    }
+
+    @Override
+    protected AccountLockProvider lockProvider() {
+        return accountLockProvider;
+    }
+}
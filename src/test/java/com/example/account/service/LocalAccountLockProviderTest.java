@@ -0,0 +1,11 @@
+package com.example.account.service;
+
+class LocalAccountLockProviderTest extends AccountLockProviderContractTest {
+    private final LocalAccountLockProvider localAccountLockProvider =
+            new LocalAccountLockProvider(new AccountLocalLock(64, false));
+
+    @Override
+    protected AccountLockProvider lockProvider() {
+        return localAccountLockProvider;
+    }
+}
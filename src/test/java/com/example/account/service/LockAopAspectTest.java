@@ -1,33 +1,75 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
+import com.example.account.aop.LockPolicy;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
+import com.example.account.type.LockMode;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static com.example.account.type.ErrorCode.TRANSACTION_OUTCOME_UNKNOWN;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 
 @ExtendWith(MockitoExtension.class)
 class LockAopAspectTest {
     @Mock
-    private LockService lockService;
+    private AccountLockProvider accountLockProvider;
+
+    @Mock
+    private LockPolicyRegistry lockPolicyRegistry;
+
+    @Spy
+    private LockContentionMonitor lockContentionMonitor = new LockContentionMonitor(100);
+
+    @Mock
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Mock
+    private AccountPartitionExecutor accountPartitionExecutor;
+
+    @Mock
+    private AccountBalanceShardService accountBalanceShardService;
 
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
 
+    @Mock
+    private Signature signature;
+
     @InjectMocks
     private LockAopAspect lockAopAspect;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(proceedingJoinPoint.getSignature()).thenReturn(signature);
+        lenient().when(signature.getName()).thenReturn("useBalance");
+    }
+
     @Test
     void lockAndUnlock() throws Throwable {
         //given
@@ -36,12 +78,14 @@ class LockAopAspectTest {
         ArgumentCaptor<String> unLockArgumentCaptor =
                 ArgumentCaptor.forClass(String.class);
         UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT);
 
         //when
-        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request);
         //then
-        Mockito.verify(lockService, times(1)).lock(lockArgumentCaptor.capture());
-        Mockito.verify(lockService, times(1)).unlock(unLockArgumentCaptor.capture());
+        Mockito.verify(accountLockProvider, times(1)).lock(lockArgumentCaptor.capture(), any());
+        Mockito.verify(accountLockProvider, times(1)).unlock(unLockArgumentCaptor.capture(), any());
 
         assertEquals("1234", lockArgumentCaptor.getValue());
         assertEquals("1234", unLockArgumentCaptor.getValue());
@@ -59,18 +103,175 @@ class LockAopAspectTest {
                         123L,
                         "54321",
                         1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT);
         given(proceedingJoinPoint.proceed()).willThrow(
                 new AccountException(ACCOUNT_TRANSACTION_LOCK));
 
         //when
         assertThrows(AccountException.class, () ->
-                lockAopAspect.aroundMethod(proceedingJoinPoint, request));
+                lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request));
         //then
-        Mockito.verify(lockService, times(1)).lock(lockArgumentCaptor.capture());
-        Mockito.verify(lockService, times(1)).unlock(unLockArgumentCaptor.capture());
+        Mockito.verify(accountLockProvider, times(1)).lock(lockArgumentCaptor.capture(), any());
+        Mockito.verify(accountLockProvider, times(1)).unlock(unLockArgumentCaptor.capture(), any());
 
         assertEquals("54321", lockArgumentCaptor.getValue());
         assertEquals("54321", unLockArgumentCaptor.getValue());
     }
 
+    @Test
+    void lockFailed_recordedAndNotUnlocked() throws Throwable {
+        //given
+        UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT);
+        willThrow(new AccountException(ACCOUNT_TRANSACTION_LOCK))
+                .given(accountLockProvider).lock(anyString(), any());
+
+        //when
+        assertThrows(AccountException.class, () ->
+                lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request));
+        //then
+        Mockito.verify(lockContentionMonitor, times(1)).failed(eq("1234"), anyLong());
+        Mockito.verify(proceedingJoinPoint, never()).proceed();
+        Mockito.verify(accountLockProvider, never()).unlock(anyString(), any());
+    }
+
+    @Test
+    void asyncLockAndUnlock() throws Throwable {
+        //given
+        AsyncAccountLockProvider asyncAccountLockProvider =
+                Mockito.mock(AsyncAccountLockProvider.class);
+        LockAopAspect asyncAspect = new LockAopAspect(asyncAccountLockProvider,
+                lockPolicyRegistry, lockContentionMonitor, Runnable::run,
+                optimisticRetryExecutor, accountPartitionExecutor,
+                accountBalanceShardService);
+        UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT);
+        given(asyncAccountLockProvider.lockAsync(anyString(), any()))
+                .willReturn(CompletableFuture.completedFuture(-1L));
+        given(asyncAccountLockProvider.unlockAsync(anyString(), any(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(proceedingJoinPoint.proceed())
+                .willReturn(CompletableFuture.completedFuture("result"));
+
+        //when
+        Object result = asyncAspect.aroundAsyncMethod(proceedingJoinPoint, accountLock(), request);
+        //then
+        assertEquals("result", ((CompletableFuture<?>) result).get());
+        Mockito.verify(asyncAccountLockProvider, times(1)).unlockAsync(eq("1234"), any(), eq(-1L));
+        Mockito.verify(asyncAccountLockProvider, never()).lock(anyString(), any());
+    }
+
+    @Test
+    void asyncLockFailed_notProceeded() throws Throwable {
+        //given
+        AsyncAccountLockProvider asyncAccountLockProvider =
+                Mockito.mock(AsyncAccountLockProvider.class);
+        LockAopAspect asyncAspect = new LockAopAspect(asyncAccountLockProvider,
+                lockPolicyRegistry, lockContentionMonitor, Runnable::run,
+                optimisticRetryExecutor, accountPartitionExecutor,
+                accountBalanceShardService);
+        UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT);
+        given(asyncAccountLockProvider.lockAsync(anyString(), any()))
+                .willReturn(CompletableFuture.failedFuture(
+                        new AccountException(ACCOUNT_TRANSACTION_LOCK)));
+
+        //when
+        Object result = asyncAspect.aroundAsyncMethod(proceedingJoinPoint, accountLock(), request);
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> ((CompletableFuture<?>) result).get());
+        assertInstanceOf(AccountException.class, exception.getCause());
+        Mockito.verify(proceedingJoinPoint, never()).proceed();
+        Mockito.verify(asyncAccountLockProvider, never()).unlockAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void optimisticMode_skipsLock() throws Throwable {
+        //given
+        UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT.toBuilder()
+                        .mode(LockMode.OPTIMISTIC)
+                        .build());
+        given(optimisticRetryExecutor.execute(eq("1234"), any()))
+                .willReturn("result");
+
+        //when
+        Object result = lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request);
+        //then
+        assertEquals("result", result);
+        Mockito.verify(accountLockProvider, never()).lock(anyString(), any());
+        Mockito.verify(accountLockProvider, never()).unlock(anyString(), any());
+    }
+
+    @Test
+    void partitionedMode_skipsLock() throws Throwable {
+        //given
+        LockAopAspect partitionedAspect = new LockAopAspect(accountLockProvider,
+                lockPolicyRegistry, lockContentionMonitor, Runnable::run,
+                optimisticRetryExecutor, new AccountPartitionExecutor(4, 10),
+                accountBalanceShardService);
+        UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT.toBuilder()
+                        .mode(LockMode.PARTITIONED)
+                        .build());
+        given(proceedingJoinPoint.proceed()).willReturn("result");
+
+        //when
+        Object result = partitionedAspect.aroundMethod(proceedingJoinPoint, accountLock(), request);
+        //then
+        assertEquals("result", result);
+        Mockito.verify(accountLockProvider, never()).lock(anyString(), any());
+        Mockito.verify(lockContentionMonitor, times(1)).released(eq("1234"), anyLong());
+    }
+
+    @Test
+    void partitionedMode_timeout() throws Throwable {
+        //given
+        UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(lockPolicyRegistry.resolve(anyString(), any()))
+                .willReturn(LockPolicy.DEFAULT.toBuilder()
+                        .mode(LockMode.PARTITIONED)
+                        .leaseTime(50L)
+                        .build());
+        given(accountPartitionExecutor.submit(eq("1234"), anyLong(), any()))
+                .willReturn(new CompletableFuture<>());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, () ->
+                lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request));
+        //then
+        assertEquals(TRANSACTION_OUTCOME_UNKNOWN, exception.getErrorCode());
+        Mockito.verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    void shardedAccount_skipsLock() throws Throwable {
+        //given
+        UseBalance.Request request = new UseBalance.Request(123L, "1234", 1000L);
+        given(accountBalanceShardService.isSharded("1234")).willReturn(true);
+        given(proceedingJoinPoint.proceed()).willReturn("result");
+
+        //when
+        Object result = lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request);
+        //then
+        assertEquals("result", result);
+        Mockito.verify(accountLockProvider, never()).lock(anyString(), any());
+        Mockito.verify(lockPolicyRegistry, never()).resolve(anyString(), any());
+    }
+
+    @AccountLock(name = "test")
+    private static void lockedMethod() {
+    }
+
+    private static AccountLock accountLock() throws NoSuchMethodException {
+        return LockAopAspectTest.class.getDeclaredMethod("lockedMethod")
+                .getAnnotation(AccountLock.class);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.dto.LockContentionInfo;
+import com.example.account.exception.AccountException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class LockContentionMonitorTest {
+
+    @Test
+    void hotAccountsOrderedByWaitTime() {
+        //given
+        LockContentionMonitor monitor = new LockContentionMonitor(100);
+        long now = System.nanoTime();
+
+        monitor.startWaiting("1000000000");
+        monitor.acquired("1000000000", now - TimeUnit.MILLISECONDS.toNanos(10));
+        monitor.startWaiting("1000000001");
+        monitor.acquired("1000000001", now - TimeUnit.MILLISECONDS.toNanos(500));
+        monitor.startWaiting("1000000001");
+        monitor.failed("1000000001", now - TimeUnit.MILLISECONDS.toNanos(1000));
+        monitor.startWaiting("1000000002");
+        //when
+        List<LockContentionInfo> hotAccounts = monitor.getHotAccounts(2);
+        //then
+        assertEquals(2, hotAccounts.size());
+        assertEquals("1000000001", hotAccounts.get(0).getAccountNumber());
+        assertEquals(1L, hotAccounts.get(0).getFailedCount());
+        assertEquals(0, hotAccounts.get(0).getCurrentWaiters());
+        assertTrue(hotAccounts.get(0).getWaitTimeMax() >= 1000L);
+        assertEquals("1000000000", hotAccounts.get(1).getAccountNumber());
+    }
+
+    @Test
+    void trackedAccountsAreBounded() {
+        //given
+        LockContentionMonitor monitor = new LockContentionMonitor(10);
+        //when
+        for (int i = 0; i < 100; i++) {
+            String accountNumber = String.valueOf(1000000000L + i);
+            monitor.released(accountNumber,
+                    monitor.acquired(accountNumber, monitor.startWaiting(accountNumber)));
+        }
+        //then
+        assertTrue(monitor.getHotAccounts(1000).size() <= 10);
+    }
+
+    @Test
+    void trackedAccountsAreBoundedWhenSampleIsBusy() {
+        //given
+        LockContentionMonitor monitor = new LockContentionMonitor(40);
+        for (int i = 0; i < 39; i++) {
+            monitor.startWaiting(String.valueOf(1000000000L + i));
+        }
+        //when
+        for (int i = 39; i < 100; i++) {
+            String accountNumber = String.valueOf(1000000000L + i);
+            monitor.released(accountNumber,
+                    monitor.acquired(accountNumber, monitor.startWaiting(accountNumber)));
+        }
+        //then
+        List<LockContentionInfo> hotAccounts = monitor.getHotAccounts(1000);
+        assertTrue(hotAccounts.size() <= 40);
+        assertEquals(39L, hotAccounts.stream()
+                .filter(info -> info.getCurrentWaiters() > 0)
+                .count());
+    }
+
+    @Test
+    void heldAccountIsNotEvictedAndKeepsHoldTime() {
+        //given
+        LockContentionMonitor monitor = new LockContentionMonitor(1);
+        long acquiredAt = monitor.acquired("1000000000", monitor.startWaiting("1000000000"));
+        //when
+        monitor.acquired("1000000001", monitor.startWaiting("1000000001"));
+        monitor.reset();
+        monitor.released("1000000000", acquiredAt);
+        //then
+        LockContentionInfo info = monitor.getHotAccounts(10).stream()
+                .filter(hot -> hot.getAccountNumber().equals("1000000000"))
+                .findFirst().orElseThrow();
+        assertEquals(1L, info.getAcquiredCount());
+    }
+
+    @Test
+    void hotAccountsLimitIsClamped() {
+        //given
+        LockContentionMonitor monitor = new LockContentionMonitor(100);
+        monitor.acquired("1000000000", monitor.startWaiting("1000000000"));
+        monitor.acquired("1000000001", monitor.startWaiting("1000000001"));
+        //when
+        List<LockContentionInfo> hotAccounts = monitor.getHotAccounts(-1);
+        //then
+        assertEquals(1, hotAccounts.size());
+    }
+
+    @Test
+    void withLock_failedLockSkipsBody() {
+        //given
+        LockContentionMonitor monitor = new LockContentionMonitor(100);
+        AccountLockProvider accountLockProvider = mock(AccountLockProvider.class);
+        willThrow(new AccountException(ACCOUNT_TRANSACTION_LOCK))
+                .given(accountLockProvider).lock(eq("1000000000"), any());
+        AtomicBoolean proceeded = new AtomicBoolean();
+
+        //when
+        assertThrows(AccountException.class, () -> monitor.withLock(accountLockProvider,
+                "1000000000", LockPolicy.DEFAULT, () -> proceeded.getAndSet(true)));
+        //then
+        assertFalse(proceeded.get());
+        verify(accountLockProvider, never()).unlock(anyString(), any());
+        LockContentionInfo info = monitor.getHotAccounts(1).get(0);
+        assertEquals(1L, info.getFailedCount());
+        assertEquals(0, info.getCurrentWaiters());
+    }
+
+    @Test
+    void withLock_unlockAfterBodyFailed() {
+        //given
+        LockContentionMonitor monitor = new LockContentionMonitor(100);
+        AccountLockProvider accountLockProvider = mock(AccountLockProvider.class);
+
+        //when
+        assertThrows(IllegalStateException.class, () -> monitor.withLock(accountLockProvider,
+                "1000000000", LockPolicy.DEFAULT, () -> {
+                    throw new IllegalStateException();
+                }));
+        //then
+        verify(accountLockProvider, times(1)).unlock(eq("1000000000"), any());
+        assertEquals(1L, monitor.getHotAccounts(1).get(0).getAcquiredCount());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.aop.LockPolicy;
+import com.example.account.config.AccountLockProperties;
+import com.example.account.type.LockMode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockPolicyRegistryTest {
+
+    @Test
+    void resolveFromAnnotation() throws Exception {
+        //given
+        LockPolicyRegistry registry = new LockPolicyRegistry(new AccountLockProperties());
+        //when
+        LockPolicy policy = registry.resolve("useBalance", accountLock("annotated"));
+        //then
+        assertEquals("use", policy.getName());
+        assertEquals(3000L, policy.getWaitTime());
+        assertEquals(-1L, policy.getLeaseTime());
+        assertTrue(policy.isWatchdog());
+        assertTrue(policy.isFair());
+    }
+
+    @Test
+    void resolveWithPropertiesOverride() throws Exception {
+        //given
+        AccountLockProperties properties = new AccountLockProperties();
+        properties.setPolicies(Map.of("use",
+                new AccountLockProperties.Policy(500L, 2000L, null)));
+        LockPolicyRegistry registry = new LockPolicyRegistry(properties);
+        //when
+        LockPolicy policy = registry.resolve("useBalance", accountLock("annotated"));
+        //then
+        assertEquals(500L, policy.getWaitTime());
+        assertEquals(2000L, policy.getLeaseTime());
+        assertFalse(policy.isWatchdog());
+        assertTrue(policy.isFair());
+    }
+
+    @Test
+    void reconfigureAtRuntime() throws Exception {
+        //given
+        LockPolicyRegistry registry = new LockPolicyRegistry(new AccountLockProperties());
+        //when
+        registry.updateOverride("unnamed",
+                new AccountLockProperties.Policy(100L, null, true));
+        LockPolicy updated = registry.resolve("unnamed", accountLock("unnamed"));
+        registry.removeOverride("unnamed");
+        LockPolicy removed = registry.resolve("unnamed", accountLock("unnamed"));
+        //then
+        assertEquals(100L, updated.getWaitTime());
+        assertTrue(updated.isFair());
+        assertEquals(5000L, removed.getWaitTime());
+        assertEquals(15000L, removed.getLeaseTime());
+        assertFalse(removed.isFair());
+    }
+
+    @Test
+    void negativeWaitTimeRejected() {
+        //given
+        AccountLockProperties properties = new AccountLockProperties();
+        properties.setPolicies(Map.of("use",
+                new AccountLockProperties.Policy(-1L, 2000L, null)));
+        //when
+        Set<ConstraintViolation<AccountLockProperties>> violations;
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            violations = factory.getValidator().validate(properties);
+        }
+        //then
+        assertEquals(1, violations.size());
+    }
+
+    @Test
+    void leaseTimeOutOfRangeRejected() {
+        //given
+        AccountLockProperties properties = new AccountLockProperties();
+        properties.setPolicies(Map.of("use",
+                new AccountLockProperties.Policy(1000L, 3_600_000L, null)));
+        //when
+        Set<ConstraintViolation<AccountLockProperties>> violations;
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            violations = factory.getValidator().validate(properties);
+        }
+        //then
+        assertEquals(1, violations.size());
+    }
+
+    @Test
+    void lockFreeModeRejectedUnlessAllowed() throws Exception {
+        //given
+        LockPolicyRegistry registry = new LockPolicyRegistry(new AccountLockProperties());
+        AccountLockProperties.Policy lockFree =
+                new AccountLockProperties.Policy(null, null, null, LockMode.NONE);
+        AccountLockProperties allowed = new AccountLockProperties();
+        allowed.setAllowLockFree(true);
+        allowed.setPolicies(Map.of("use", lockFree));
+        AccountLockProperties notAllowed = new AccountLockProperties();
+        notAllowed.setPolicies(Map.of("use", lockFree));
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.updateOverride("use", lockFree));
+        assertFalse(registry.getOverrides().containsKey("use"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LockPolicyRegistry(notAllowed));
+        assertTrue(new LockPolicyRegistry(allowed)
+                .resolve("useBalance", accountLock("annotated")).isLockFree());
+    }
+
+    @AccountLock(name = "use", tryLockTime = 3000L, leaseTime = -1L, fair = true)
+    private static void annotated() {
+    }
+
+    @AccountLock
+    private static void unnamed() {
+    }
+
+    private static AccountLock accountLock(String methodName) throws NoSuchMethodException {
+        return LockPolicyRegistryTest.class.getDeclaredMethod(methodName)
+                .getAnnotation(AccountLock.class);
+    }
+}
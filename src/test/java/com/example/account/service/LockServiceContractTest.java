@@ -0,0 +1,52 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+class LockServiceContractTest extends AccountLockProviderContractTest {
+    private static final int REDIS_PORT = 6380;
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    private LockService lockService;
+    private LockService otherNodeLockService;
+
+    @BeforeAll
+    static void startRedis() {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        // 노드마다 로컬 락 티어가 따로 있으므로 두 인스턴스로 두 노드를 흉내 낸다
+        lockService = new LockService(redissonClient, new AccountLocalLock(64, false));
+        otherNodeLockService = new LockService(redissonClient, new AccountLocalLock(64, false));
+    }
+
+    @Override
+    protected AccountLockProvider lockProvider() {
+        return lockService;
+    }
+
+    @Override
+    protected AccountLockProvider otherLockProvider() {
+        return otherNodeLockService;
+    }
+}
@@ -5,18 +5,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class LockServiceTest {
@@ -26,6 +34,9 @@ class LockServiceTest {
     @Mock
     private RLock rLock;
 
+    @Spy
+    private AccountLocalLock accountLocalLock = new AccountLocalLock(16, false);
+
     @InjectMocks
     private LockService lockService;
 
@@ -54,4 +65,68 @@ class LockServiceTest {
         assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
     }
 
+    @Test
+    void failGetLocalLock_withoutRedis() throws Exception {
+        //given
+        Thread holder = new Thread(() -> {
+            try {
+                accountLocalLock.tryLock("123", 1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        holder.start();
+        holder.join();
+        //when
+        AccountException exception = assertThrows(AccountException.class, () -> lockService.lock("123"));
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(rLock, never()).tryLock(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void redisError_failsClosedAndReleasesLocalLock() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLock(anyLong(), anyLong(), any()))
+                .willThrow(new RedisException("connection lost"));
+        //when
+        AccountException exception = assertThrows(AccountException.class, () -> lockService.lock("123"));
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(accountLocalLock).unlock("123");
+        // 로컬 락이 풀려서 다른 스레드가 잡을 수 있다
+        assertTrue(otherThreadCanLock("123"));
+    }
+
+    @Test
+    void interrupted_failsClosedAndKeepsInterruptFlag() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLock(anyLong(), anyLong(), any()))
+                .willThrow(new InterruptedException());
+        //when
+        AccountException exception = assertThrows(AccountException.class, () -> lockService.lock("123"));
+        boolean interrupted = Thread.interrupted();
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertTrue(interrupted);
+        verify(accountLocalLock).unlock("123");
+    }
+
+    private boolean otherThreadCanLock(String accountNumber) throws InterruptedException {
+        AtomicBoolean locked = new AtomicBoolean();
+        Thread other = new Thread(() -> {
+            try {
+                locked.set(accountLocalLock.tryLock(accountNumber, 100, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        other.start();
+        other.join();
+        return locked.get();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static com.example.account.type.ErrorCode.AMOUNT_EXCEED_BALANCE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticRetryExecutorTest {
+    private final OptimisticRetryExecutor optimisticRetryExecutor =
+            new OptimisticRetryExecutor(3, 0L, 0L);
+
+    @Test
+    void retryUntilSuccess() throws Throwable {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        Object result = optimisticRetryExecutor.execute("1000000000", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Account", 1L);
+            }
+            return "ok";
+        });
+        //then
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void retryExhausted() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, () ->
+                optimisticRetryExecutor.execute("1000000000", () -> {
+                    attempts.incrementAndGet();
+                    throw new ObjectOptimisticLockingFailureException("Account", 1L);
+                }));
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void notRetriedForOtherException() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, () ->
+                optimisticRetryExecutor.execute("1000000000", () -> {
+                    attempts.incrementAndGet();
+                    throw new AccountException(AMOUNT_EXCEED_BALANCE);
+                }));
+        //then
+        assertEquals(AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        assertEquals(1, attempts.get());
+    }
+}
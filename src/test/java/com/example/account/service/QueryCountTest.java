@@ -0,0 +1,142 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.TransactionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static com.example.account.type.AccountStatus.IN_USE;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 서비스 메서드별 SQL 문 수를 고정해서 지연 로딩이 풀리거나 N+1 이 생기면 실패하게 한다
+ * 시퀀스 조회가 섞이지 않도록 준비 단계에서 거래를 한 번 만들어 pooled-lo 구간을 받아둔다
+ */
+@SpringBootTest(properties = {
+        "account.lock.provider=local",
+        "spring.datasource.url=jdbc:h2:mem:query-count",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class QueryCountTest {
+    private static final String ACCOUNT_NUMBER = "1900000000";
+    private static final Long USER_ID = 1L;
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private TransactionHistoryService transactionHistoryService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String transactionId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (accountRepository.findByAccountNumber(ACCOUNT_NUMBER).isEmpty()) {
+            accountRepository.save(Account.builder()
+                    .accountUser(accountUserRepository.findById(USER_ID).get())
+                    .accountNumber(ACCOUNT_NUMBER)
+                    .accountStatus(IN_USE)
+                    .balance(1_000_000L)
+                    .registeredAt(LocalDateTime.now())
+                    .build());
+        }
+        transactionId = transactionService.useBalance(USER_ID, ACCOUNT_NUMBER, 1000L)
+                .getTransactionId();
+        statistics.clear();
+    }
+
+    @Test
+    void queryTransaction_cachedAfterCommit() {
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction(transactionId);
+        //then
+        // 만든 거래는 커밋 뒤 캐시에 들어가 있다
+        assertEquals(ACCOUNT_NUMBER, transactionDto.getAccountNumber());
+        assertEquals(0L, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void queryTransaction_oneSelectThenCached() {
+        //given
+        Transaction saved = transactionRepository.save(Transaction.builder()
+                .account(accountRepository.findByAccountNumber(ACCOUNT_NUMBER).get())
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .balanceSnapShot(0L)
+                .transactionId(UUID.randomUUID().toString().replace("-", ""))
+                .transactedAt(LocalDateTime.now())
+                .build());
+        statistics.clear();
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction(saved.getTransactionId());
+        transactionService.queryTransaction(saved.getTransactionId());
+        //then
+        assertEquals(ACCOUNT_NUMBER, transactionDto.getAccountNumber());
+        assertEquals(1L, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void useBalance_updateSelectInsert() {
+        //when
+        transactionService.useBalance(USER_ID, ACCOUNT_NUMBER, 1000L);
+        //then
+        // 조건부 UPDATE, 잔액 조회, 거래 INSERT
+        assertEquals(3L, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void cancelBalance_noAccountUserLoad() {
+        //when
+        transactionService.cancelBalance(transactionId, ACCOUNT_NUMBER, 1000L);
+        //then
+        // 원 거래는 캐시에서 읽고 계좌 조회, 계좌 UPDATE, 거래 INSERT
+        assertEquals(3L, statistics.getPrepareStatementCount());
+        assertEquals(0L, statistics.getEntityStatistics(
+                "com.example.account.domain.AccountUser").getLoadCount());
+    }
+
+    @Test
+    void getAccountsByUserId_oneSelect() {
+        //when
+        accountService.getAccountsByUserId(USER_ID);
+        //then
+        assertEquals(1L, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getTransactions_accountAndKeysetSelect() {
+        //when
+        transactionHistoryService.getTransactions(ACCOUNT_NUMBER, null, null, null,
+                null, null, 10);
+        //then
+        // 계좌 조회, 거래 내역 조회
+        assertEquals(2L, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.domain.Account;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.LockMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionResultType.S;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchServiceTest {
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private AccountLockProvider accountLockProvider;
+    @Mock
+    private LockPolicyRegistry lockPolicyRegistry;
+    @Spy
+    private LockContentionMonitor lockContentionMonitor = new LockContentionMonitor(100);
+    @Mock
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+    @Mock
+    private AccountPartitionExecutor accountPartitionExecutor;
+    @Mock
+    private AccountBalanceShardService accountBalanceShardService;
+    @InjectMocks
+    private TransactionBatchService transactionBatchService;
+
+    @BeforeEach
+    void setUp() {
+        given(lockPolicyRegistry.applyOverride(any())).willReturn(LockPolicy.DEFAULT);
+    }
+
+    @Test
+    void groupByAccount_lockOncePerAccount() {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000001", 1000L),
+                new UseBalance.Request(1L, "1000000000", 2000L),
+                new UseBalance.Request(1L, "1000000001", 3000L));
+        given(transactionService.useBalances(eq("1000000000"), anyList()))
+                .willReturn(List.of(success("1000000000", 2000L)));
+        given(transactionService.useBalances(eq("1000000001"), anyList()))
+                .willReturn(List.of(success("1000000001", 1000L), success("1000000001", 3000L)));
+
+        //when
+        List<TransactionDto> results = transactionBatchService.useBalances(requests);
+        //then
+        verify(accountLockProvider, times(1)).lock(eq("1000000000"), any());
+        verify(accountLockProvider, times(1)).lock(eq("1000000001"), any());
+        verify(accountLockProvider, times(2)).unlock(anyString(), any());
+        assertEquals(3, results.size());
+        assertEquals(1000L, results.get(0).getAmount());
+        assertEquals(2000L, results.get(1).getAmount());
+        assertEquals(3000L, results.get(2).getAmount());
+    }
+
+    @Test
+    void lockFailed_groupMarkedFailed() {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000000", 1000L),
+                new UseBalance.Request(1L, "1000000001", 2000L));
+        willThrow(new AccountException(ACCOUNT_TRANSACTION_LOCK))
+                .given(accountLockProvider).lock(eq("1000000000"), any());
+        given(transactionService.useBalances(eq("1000000001"), anyList()))
+                .willReturn(List.of(success("1000000001", 2000L)));
+
+        //when
+        List<TransactionDto> results = transactionBatchService.useBalances(requests);
+        //then
+        assertEquals(F, results.get(0).getTransactionResultType());
+        assertEquals(S, results.get(1).getTransactionResultType());
+        verify(transactionService, never()).useBalances(eq("1000000000"), anyList());
+        verify(accountLockProvider, never()).unlock(eq("1000000000"), any());
+    }
+
+    @Test
+    void versionConflict_groupMarkedFailed() {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000000", 1000L),
+                new UseBalance.Request(1L, "1000000001", 2000L));
+        given(transactionService.useBalances(eq("1000000000"), anyList()))
+                .willThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L));
+        given(transactionService.useBalances(eq("1000000001"), anyList()))
+                .willReturn(List.of(success("1000000001", 2000L)));
+
+        //when
+        List<TransactionDto> results = transactionBatchService.useBalances(requests);
+        //then
+        assertEquals(F, results.get(0).getTransactionResultType());
+        assertEquals(1000L, results.get(0).getAmount());
+        assertEquals(S, results.get(1).getTransactionResultType());
+        verify(accountLockProvider, times(1)).unlock(eq("1000000000"), any());
+    }
+
+    @Test
+    void optimisticMode_retriesWithoutLock() throws Throwable {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000000", 1000L));
+        given(lockPolicyRegistry.applyOverride(any())).willReturn(
+                LockPolicy.DEFAULT.toBuilder().mode(LockMode.OPTIMISTIC).build());
+        given(optimisticRetryExecutor.execute(eq("1000000000"), any()))
+                .willReturn(List.of(success("1000000000", 1000L)));
+
+        //when
+        List<TransactionDto> results = transactionBatchService.useBalances(requests);
+        //then
+        assertEquals(S, results.get(0).getTransactionResultType());
+        verify(accountLockProvider, never()).lock(anyString(), any());
+        verify(accountPartitionExecutor, never()).submit(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void partitionedMode_runsOnAccountPartition() {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000000", 1000L));
+        given(lockPolicyRegistry.applyOverride(any())).willReturn(
+                LockPolicy.DEFAULT.toBuilder().mode(LockMode.PARTITIONED).build());
+        given(accountPartitionExecutor.submit(eq("1000000000"), anyLong(), any()))
+                .willReturn(CompletableFuture.completedFuture(
+                        List.of(success("1000000000", 1000L))));
+
+        //when
+        List<TransactionDto> results = transactionBatchService.useBalances(requests);
+        //then
+        assertEquals(S, results.get(0).getTransactionResultType());
+        verify(accountLockProvider, never()).lock(anyString(), any());
+    }
+
+    @Test
+    void partitionedMode_queueFullMarksGroupFailed() {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000000", 1000L));
+        given(lockPolicyRegistry.applyOverride(any())).willReturn(
+                LockPolicy.DEFAULT.toBuilder().mode(LockMode.PARTITIONED).build());
+        given(accountPartitionExecutor.submit(eq("1000000000"), anyLong(), any()))
+                .willReturn(CompletableFuture.failedFuture(
+                        new AccountException(ACCOUNT_TRANSACTION_LOCK)));
+
+        //when
+        List<TransactionDto> results = transactionBatchService.useBalances(requests);
+        //then
+        assertEquals(F, results.get(0).getTransactionResultType());
+        verify(transactionService, never()).useBalances(anyString(), anyList());
+    }
+
+    private static TransactionDto success(String accountNumber, Long amount) {
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .amount(amount)
+                .transactionResultType(S)
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionCacheInfo;
+import com.example.account.dto.TransactionDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TransactionCacheTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void findAfterPutAndCountMetrics() {
+        //given
+        TransactionCache transactionCache = new TransactionCache(2, Duration.ofMinutes(1),
+                false, Duration.ofHours(1),
+                mock(ObjectProvider.class), mock(ObjectProvider.class));
+        //when
+        transactionCache.putAfterCommit(transaction("tx1"));
+        transactionCache.put(transaction("tx2"));
+        transactionCache.put(transaction("tx3"));
+        //then
+        assertTrue(transactionCache.find("tx3").isPresent());
+        assertFalse(transactionCache.find("tx1").isPresent());
+        TransactionCacheInfo info = transactionCache.getInfo();
+        assertEquals(2, info.getSize());
+        assertEquals(1L, info.getHitCount());
+        assertEquals(1L, info.getMissCount());
+        assertEquals(1L, info.getEvictionCount());
+        assertFalse(info.isRedisEnabled());
+    }
+
+    private static TransactionDto transaction(String transactionId) {
+        return TransactionDto.builder()
+                .accountNumber("1000000012")
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .transactionId(transactionId)
+                .build();
+    }
+}
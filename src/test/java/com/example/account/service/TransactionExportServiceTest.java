@@ -0,0 +1,130 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static com.example.account.type.ExportFormat.CSV;
+import static com.example.account.type.ExportFormat.NDJSON;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private EntityManager entityManager;
+
+    private TransactionExportService transactionExportService;
+
+    @BeforeEach
+    void setUp() {
+        transactionExportService = new TransactionExportService(accountRepository,
+                transactionRepository, entityManager,
+                new ObjectMapper().findAndRegisterModules()
+                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+    }
+
+    @Test
+    void exportNdjson() throws Exception {
+        //given
+        given(transactionRepository.streamForExportByAccount(1L,
+                TransactionRepository.EARLIEST_TRANSACTED_AT,
+                TransactionRepository.LATEST_TRANSACTED_AT))
+                .willReturn(Stream.of(transaction(1L), transaction(2L)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //when
+        long count = transactionExportService.export(1L, null, null, NDJSON, out);
+        //then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2L, count);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"transactionId\":\"tx1\""));
+        assertTrue(lines[1].contains("\"transactedAt\":\"2024-03-02T10:00:00\""));
+        verify(entityManager, never()).clear();
+    }
+
+    @Test
+    @DisplayName("정해진 행 수마다 영속성 컨텍스트를 비우고, 다 쓰면 스트림을 닫음")
+    void exportCsvClearsPersistenceContext() throws Exception {
+        //given
+        AtomicBoolean closed = new AtomicBoolean();
+        int rows = TransactionExportService.CLEAR_EVERY_ROWS * 2 + 1;
+        given(transactionRepository.streamForExportByDateRange(FROM, TO))
+                .willReturn(LongStream.rangeClosed(1, rows)
+                        .mapToObj(TransactionExportServiceTest::transaction)
+                        .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //when
+        long count = transactionExportService.export(null, FROM, TO, CSV, out);
+        //then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(rows, count);
+        assertEquals(rows + 1, lines.length);
+        assertTrue(lines[0].startsWith("transactionId,accountNumber"));
+        assertEquals("tx1,1000000012,USE,S,1000,9000,2024-03-02T10:00:00,", lines[1]);
+        verify(entityManager, times(2)).clear();
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void resolveAccountId_dateRangeRequiredWithoutAccount() {
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionExportService.resolveAccountId(null, FROM, null));
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+        assertNull(transactionExportService.resolveAccountId(null, FROM, TO));
+    }
+
+    private static Transaction transaction(long id) {
+        Account account = Account.builder()
+                .accountNumber("1000000012")
+                .build();
+        account.setId(1L);
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .balanceSnapShot(9000L)
+                .transactionId("tx" + id)
+                .transactedAt(LocalDateTime.of(2024, 3, 2, 10, 0))
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+}
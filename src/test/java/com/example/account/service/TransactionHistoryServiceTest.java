@@ -0,0 +1,161 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.account.repository.TransactionRepository.EARLIEST_TRANSACTED_AT;
+import static com.example.account.repository.TransactionRepository.LATEST_TRANSACTED_AT;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionHistoryServiceTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123456000);
+
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @InjectMocks
+    private TransactionHistoryService transactionHistoryService;
+
+    @Test
+    @DisplayName("한 건 더 읽히면 마지막 거래로 다음 커서를 만듦")
+    void firstPageWithNextCursor() {
+        //given
+        givenAccount();
+        given(transactionRepository.findHistoryByTypeAndResult(eq(1L), any(), eq(Long.MAX_VALUE),
+                eq(EARLIEST_TRANSACTED_AT), eq(LATEST_TRANSACTED_AT), eq(USE), eq(S),
+                eq(Limit.of(3))))
+                .willReturn(List.of(item(30L, NOW), item(20L, NOW),
+                        item(10L, NOW.minusSeconds(1))));
+        //when
+        TransactionHistory.Response response = transactionHistoryService.getTransactions(
+                "1000000012", null, null, null, USE, S, 2);
+        //then
+        assertEquals(2, response.getItems().size());
+        assertEquals("tx20", response.getItems().get(1).getTransactionId());
+        assertEquals(TransactionHistoryService.encodeCursor(item(20L, NOW)),
+                response.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("커서의 (거래일시, id) 다음부터 읽고, 마지막 페이지면 커서 없음")
+    void nextPageFromCursor() {
+        //given
+        givenAccount();
+        String cursor = TransactionHistoryService.encodeCursor(item(20L, NOW));
+        given(transactionRepository.findHistory(eq(1L), eq(NOW), eq(20L),
+                eq(EARLIEST_TRANSACTED_AT), eq(LATEST_TRANSACTED_AT), eq(Limit.of(3))))
+                .willReturn(List.of(item(10L, NOW.minusSeconds(1))));
+        //when
+        TransactionHistory.Response response = transactionHistoryService.getTransactions(
+                "1000000012", cursor, null, null, null, null, 2);
+        //then
+        assertEquals(1, response.getItems().size());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("거래 종류나 결과만 있으면 그 조건만 있는 쿼리를 씀")
+    void singleFilterUsesMatchingQuery() {
+        //given
+        givenAccount();
+        given(transactionRepository.findHistoryByType(eq(1L), any(), eq(Long.MAX_VALUE),
+                any(), any(), eq(USE), eq(Limit.of(3))))
+                .willReturn(List.of(item(10L, NOW)));
+        given(transactionRepository.findHistoryByResult(eq(1L), any(), eq(Long.MAX_VALUE),
+                any(), any(), eq(S), eq(Limit.of(3))))
+                .willReturn(List.of(item(10L, NOW)));
+        //when
+        TransactionHistory.Response byType = transactionHistoryService.getTransactions(
+                "1000000012", null, null, null, USE, null, 2);
+        TransactionHistory.Response byResult = transactionHistoryService.getTransactions(
+                "1000000012", null, null, null, null, S, 2);
+        //then
+        assertEquals(1, byType.getItems().size());
+        assertEquals(1, byResult.getItems().size());
+        verify(transactionRepository, never()).findHistory(anyLong(), any(), any(),
+                any(), any(), any());
+    }
+
+    @Test
+    void invalidCursor() {
+        //given
+        givenAccount();
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactions(
+                        "1000000012", "not-a-cursor", null, null, null, null, null));
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    @Test
+    void invalidDateRange() {
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactions(
+                        "1000000012", null, NOW, NOW, null, null, null));
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void accountNotFound() {
+        //given
+        given(accountRepository.findByAccountNumber("1000000012")).willReturn(Optional.empty());
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactions(
+                        "1000000012", null, null, null, null, null, null));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    private void givenAccount() {
+        Account account = Account.builder()
+                .accountNumber("1000000012")
+                .build();
+        account.setId(1L);
+        given(accountRepository.findByAccountNumber("1000000012")).willReturn(Optional.of(account));
+    }
+
+    private static TransactionHistory.Item item(Long id, LocalDateTime transactedAt) {
+        return TransactionHistory.Item.builder()
+                .id(id)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .transactionId("tx" + id)
+                .transactedAt(transactedAt)
+                .build();
+    }
+}
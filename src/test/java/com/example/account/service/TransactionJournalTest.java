@@ -0,0 +1,118 @@
+package com.example.account.service;
+
+import com.example.account.dto.JournalRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionJournalTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayAfterReopen() throws Exception {
+        //given
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            journal.append(record("tx1", 1000L)).get(1, TimeUnit.SECONDS);
+            journal.append(record("tx2", 2000L)).get(1, TimeUnit.SECONDS);
+        }
+
+        //when
+        List<JournalRecord> records;
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            records = journal.readFrom(journal.checkpointPosition());
+        }
+        //then
+        assertEquals(2, records.size());
+        assertEquals("tx1", records.get(0).getTransactionId());
+        assertEquals(2000L, records.get(1).getAmount());
+        assertEquals(USE, records.get(1).getTransactionType());
+        assertNull(records.get(1).getBalanceSnapShot());
+    }
+
+    @Test
+    void replayFromCheckpointAcrossSegments() throws Exception {
+        //given
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            for (int i = 0; i < 30; i++) {
+                JournalRecord journalRecord = record("tx" + i, 1000L);
+                journal.append(journalRecord).get(1, TimeUnit.SECONDS);
+                if (i == 20) {
+                    journal.checkpoint(journalRecord.getPosition());
+                }
+            }
+        }
+
+        //when
+        List<JournalRecord> records;
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            records = journal.readFrom(journal.checkpointPosition());
+        }
+        //then
+        // checkpoint 위치의 레코드부터 다시 읽는다
+        assertEquals(10, records.size());
+        assertEquals("tx20", records.get(0).getTransactionId());
+        assertEquals("tx29", records.get(9).getTransactionId());
+        try (Stream<Path> files = Files.list(directory)) {
+            // checkpoint 앞의 세그먼트는 지워진다
+            assertTrue(files.filter(path -> path.toString().endsWith(".journal")).count() < 5);
+        }
+    }
+
+    @Test
+    void ignoreTornRecord() throws Exception {
+        //given
+        long position;
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            journal.append(record("tx1", 1000L)).get(1, TimeUnit.SECONDS);
+            JournalRecord torn = record("tx2", 2000L);
+            journal.append(torn).get(1, TimeUnit.SECONDS);
+            position = torn.getPosition();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(
+                directory.resolve(String.format("%012d.journal", position >>> 32)).toFile(), "rw")) {
+            // 본문 한 바이트를 바꿔 CRC 가 맞지 않게 한다
+            long offset = (int) position + 10;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+
+        //when
+        List<JournalRecord> records;
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            records = journal.readFrom(journal.checkpointPosition());
+        }
+        //then
+        assertEquals(1, records.size());
+        assertEquals("tx1", records.get(0).getTransactionId());
+    }
+
+    private static JournalRecord record(String transactionId, Long amount) {
+        return JournalRecord.builder()
+                .transactionId(transactionId)
+                .accountId(1L)
+                .accountNumber("1000000012")
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(amount)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.JournalRecord;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.JournalRecordState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.example.account.type.ErrorCode.TRANSACTION_JOURNAL_FAILED;
+import static com.example.account.type.JournalRecordState.ABORTED;
+import static com.example.account.type.JournalRecordState.COMMITTED;
+import static com.example.account.type.JournalRecordState.PREPARED;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionJournalWriterTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    // DB 에 저장된 거래번호, 같은 번호가 두 번 들어가면 중복 저장이다
+    private final List<String> saved = new CopyOnWriteArrayList<>();
+    private TransactionJournal journal;
+    private TransactionJournalWriter writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        willAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).given(transactionTemplate).executeWithoutResult(any());
+        lenient().when(transactionRepository.findTransactionIdsIn(any()))
+                .thenAnswer(invocation -> ((Collection<String>) invocation.getArgument(0))
+                        .stream().filter(saved::contains).toList());
+        lenient().when(transactionRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> {
+                    List<Transaction> transactions = invocation.getArgument(0);
+                    transactions.forEach(transaction -> saved.add(transaction.getTransactionId()));
+                    return transactions;
+                });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        if (writer != null) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(writer);
+            writer.shutdown();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void replayAfterRestart_persistsEachRecordOnce() throws Exception {
+        //given
+        try (TransactionJournal previous = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            for (String transactionId : List.of("tx1", "tx2", "tx3")) {
+                previous.append(record(transactionId)).get(1, TimeUnit.SECONDS);
+            }
+        }
+        // tx1 은 종료 전에 이미 DB 에 저장되었다
+        saved.add("tx1");
+
+        //when
+        startWriter(500, 5);
+        awaitSaved("tx2", "tx3");
+        //then
+        assertEquals(List.of("tx1", "tx2", "tx3"), saved.stream().sorted().toList());
+        writer.shutdown();
+        writer = null;
+        journal.close();
+        journal = null;
+        try (TransactionJournal restarted = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            // 저장이 끝난 레코드는 checkpoint 뒤로 넘어가서 다시 읽지 않는다
+            assertTrue(restarted.readFrom(restarted.checkpointPosition()).isEmpty());
+        }
+    }
+
+    @Test
+    void replay_checkpointStopsAtFirstUnwrittenRecord() throws Exception {
+        //given
+        JournalRecord second = record("tx2");
+        try (TransactionJournal previous = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            previous.append(record("tx1")).get(1, TimeUnit.SECONDS);
+            previous.append(second).get(1, TimeUnit.SECONDS);
+            previous.append(record("tx3")).get(1, TimeUnit.SECONDS);
+        }
+        CountDownLatch secondBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseSecondBatch = new CountDownLatch(1);
+        given(transactionRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            if (transactions.get(0).getTransactionId().equals("tx2")) {
+                secondBatchStarted.countDown();
+                releaseSecondBatch.await(5, TimeUnit.SECONDS);
+            }
+            transactions.forEach(transaction -> saved.add(transaction.getTransactionId()));
+            return transactions;
+        });
+
+        //when
+        startWriter(1, 5);
+        assertTrue(secondBatchStarted.await(5, TimeUnit.SECONDS));
+        long checkpoint = journal.checkpointPosition();
+        releaseSecondBatch.countDown();
+        awaitSaved("tx2", "tx3");
+        //then
+        // tx1 만 저장된 시점에 checkpoint 는 tx2 를 넘지 않는다
+        assertEquals(second.getPosition(), checkpoint);
+        assertEquals(List.of("tx1", "tx2", "tx3"), saved);
+    }
+
+    @Test
+    void awaitPersisted_waitsForDbWrite() throws Exception {
+        //given
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        given(transactionRepository.saveAll(anyList())).willAnswer(invocation -> {
+            releaseWrite.await(5, TimeUnit.SECONDS);
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(transaction -> saved.add(transaction.getTransactionId()));
+            return transactions;
+        });
+        startWriter(500, 5);
+        writer.appendBeforeCommit(transaction("tx1"), "1000000012");
+
+        //when
+        assertTrue(writer.findPending("tx1").isPresent());
+        new Thread(() -> {
+            sleep(100);
+            releaseWrite.countDown();
+        }).start();
+        boolean waited = writer.awaitPersisted("tx1");
+        //then
+        assertTrue(waited);
+        assertEquals(List.of("tx1"), saved);
+        assertTrue(writer.findPending("tx1").isEmpty());
+    }
+
+    @Test
+    void failingRecord_movedToDeadLetter() throws Exception {
+        //given
+        given(transactionRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            if (transactions.stream().anyMatch(t -> t.getTransactionId().equals("bad"))) {
+                throw new IllegalStateException("constraint violation");
+            }
+            transactions.forEach(transaction -> saved.add(transaction.getTransactionId()));
+            return transactions;
+        });
+        startWriter(500, 2);
+
+        //when
+        writer.appendBeforeCommit(transaction("bad"), "1000000012");
+        writer.appendBeforeCommit(transaction("good"), "1000000012");
+        awaitSaved("good");
+        awaitDeadLettered(1);
+        //then
+        assertEquals(List.of("good"), saved);
+        List<JournalRecord> deadLetters = journal.readDeadLetters();
+        assertEquals(1, deadLetters.size());
+        assertEquals("bad", deadLetters.get(0).getTransactionId());
+    }
+
+    @Test
+    void replay_skipsAbortedAndDeadLettersInDoubt() throws Exception {
+        //given
+        try (TransactionJournal previous = new TransactionJournal(directory, SEGMENT_SIZE, 1)) {
+            previous.append(record("tx1", PREPARED)).get(1, TimeUnit.SECONDS);
+            previous.append(record("tx2", PREPARED)).get(1, TimeUnit.SECONDS);
+            previous.append(record("tx3", PREPARED)).get(1, TimeUnit.SECONDS);
+            previous.append(record("tx1", COMMITTED)).get(1, TimeUnit.SECONDS);
+            previous.append(record("tx2", ABORTED)).get(1, TimeUnit.SECONDS);
+        }
+
+        //when
+        startWriter(500, 5);
+        awaitSaved("tx1");
+        //then
+        assertEquals(List.of("tx1"), saved);
+        // 커밋 여부를 모르는 tx3 은 저장하지 않고 dead-letter 로 보낸다
+        assertEquals(1L, writer.getDeadLetteredCount());
+        assertEquals("tx3", journal.readDeadLetters().get(0).getTransactionId());
+    }
+
+    @Test
+    void inTransaction_durableBeforeCommitAndPersistedAfterCommit() throws Exception {
+        //given
+        startWriter(500, 5);
+        TransactionSynchronizationManager.initSynchronization();
+        writer.appendBeforeCommit(transaction("tx1"), "1000000012");
+        long beforeCommit = journal.endPosition();
+
+        //when
+        synchronizations().forEach(synchronization -> synchronization.beforeCommit(false));
+        long afterBeforeCommit = journal.endPosition();
+        synchronizations().forEach(TransactionSynchronization::afterCommit);
+        synchronizations().forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        awaitSaved("tx1");
+        //then
+        assertTrue(afterBeforeCommit > beforeCommit);
+        assertEquals(List.of("tx1"), saved);
+    }
+
+    @Test
+    void journalAppendFailed_rollsBackAndNothingIsPersisted() throws Exception {
+        //given
+        startWriter(500, 5);
+        journal.close();
+        TransactionSynchronizationManager.initSynchronization();
+        writer.appendBeforeCommit(transaction("tx1"), "1000000012");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> synchronizations().forEach(synchronization ->
+                        synchronization.beforeCommit(false)));
+        synchronizations().forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        sleep(100);
+        //then
+        // 저널에 못 남긴 거래는 롤백되므로 DB 에도 저장하지 않는다
+        assertEquals(TRANSACTION_JOURNAL_FAILED, exception.getErrorCode());
+        assertTrue(writer.findPending("tx1").isEmpty());
+        assertTrue(saved.isEmpty());
+    }
+
+    @Test
+    void outsideTransaction_journalAppendFailed_throwsAndNothingIsPersisted() {
+        //given
+        startWriter(500, 5);
+        journal.close();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> writer.appendBeforeCommit(transaction("tx1"), "1000000012"));
+        sleep(100);
+        //then
+        // 트랜잭션 밖에서도 저널에 못 남긴 거래는 큐에 넣지 않는다
+        assertEquals(TRANSACTION_JOURNAL_FAILED, exception.getErrorCode());
+        assertTrue(writer.findPending("tx1").isEmpty());
+        assertTrue(saved.isEmpty());
+    }
+
+    private static List<TransactionSynchronization> synchronizations() {
+        return TransactionSynchronizationManager.getSynchronizations();
+    }
+
+    private void startWriter(int batchSize, int maxWriteAttempts) {
+        journal = new TransactionJournal(directory, SEGMENT_SIZE, 1);
+        writer = new TransactionJournalWriter(journal, transactionRepository, accountRepository,
+                transactionTemplate, 100, batchSize, 1000L, 1000L, 1L, maxWriteAttempts);
+        writer.start();
+    }
+
+    private void awaitSaved(String... transactionIds) {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!saved.containsAll(List.of(transactionIds))) {
+            assertTrue(System.currentTimeMillis() < deadline, "not persisted in time");
+            sleep(10);
+        }
+    }
+
+    private void awaitDeadLettered(long count) {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (writer.getDeadLetteredCount() < count) {
+            assertTrue(System.currentTimeMillis() < deadline, "not dead-lettered in time");
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Transaction transaction(String transactionId) {
+        Account account = Account.builder()
+                .accountNumber("1000000012")
+                .build();
+        account.setId(1L);
+        return Transaction.builder()
+                .transactionId(transactionId)
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .balanceSnapShot(9000L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static JournalRecord record(String transactionId, JournalRecordState state) {
+        return record(transactionId).toBuilder()
+                .state(state)
+                .build();
+    }
+
+    private static JournalRecord record(String transactionId) {
+        return JournalRecord.builder()
+                .transactionId(transactionId)
+                .accountId(1L)
+                .accountNumber("1000000012")
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
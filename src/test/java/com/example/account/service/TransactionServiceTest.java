@@ -3,7 +3,9 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.FailedTransactionRecord;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
@@ -17,26 +19,36 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static com.example.account.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
 import static com.example.account.type.ErrorCode.AMOUNT_EXCEED_BALANCE;
 import static com.example.account.type.ErrorCode.CANCEL_MUST_FULLY;
+import static com.example.account.type.ErrorCode.SAME_ACCOUNT_TRANSFER;
 import static com.example.account.type.ErrorCode.TOO_OLD_ORDER_TO_CANCEL;
 import static com.example.account.type.ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH;
 import static com.example.account.type.ErrorCode.TRANSACTION_NOT_FOUND;
+import static com.example.account.type.ErrorCode.TRANSFER_NOT_CANCELLABLE;
 import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.TRANSFER_IN;
+import static com.example.account.type.TransactionType.TRANSFER_OUT;
 import static com.example.account.type.TransactionType.USE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -51,11 +63,22 @@ class TransactionServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private AccountUserRepository accountUserRepository;
+    @Mock
+    private AccountBalanceShardService accountBalanceShardService;
+    @Mock
+    private ObjectProvider<TransactionJournalWriter> transactionJournalWriterProvider;
+    @Mock
+    private TransactionJournalWriter transactionJournalWriter;
+    @Mock
+    private TransactionCache transactionCache;
+    @Mock
+    private AccountEtagResolver accountEtagResolver;
 
     @InjectMocks
     private TransactionService transactionService;
 
     @Test
+    @DisplayName("검증 후 재시도 - 조건부 UPDATE 가 다시 출금하고 엔티티는 바꾸지 않음")
     void successUseBalance() {
         //given
         AccountUser tester = AccountUser.builder()
@@ -68,7 +91,21 @@ class TransactionServiceTest {
                 .balance(10000L)
                 .accountNumber("1000000012")
                 .build();
-
+        account.setId(1L);
+        AccountRepository.BalanceView balanceView = new AccountRepository.BalanceView() {
+            @Override
+            public Long getId() {
+                return 1L;
+            }
+
+            @Override
+            public Long getBalance() {
+                return 9000L;
+            }
+        };
+
+        given(accountRepository.debitIfAvailable(eq("1000000012"), eq(12L), eq(USE_AMOUNT),
+                eq(AccountStatus.IN_USE), any())).willReturn(0, 1);
         given(accountUserRepository.findById(anyLong())).willReturn(
                 Optional.of(
                         tester)
@@ -77,15 +114,10 @@ class TransactionServiceTest {
         given(accountRepository.findByAccountNumber(anyString())).willReturn(
                 Optional.of(account)
         );
-        given(transactionRepository.save(any())).willReturn(Transaction.builder()
-                .account(account)
-                .transactionType(USE)
-                .transactionResultType(S)
-                .transactionId("transactionId")
-                .transactedAt(LocalDateTime.now())
-                .amount(1000L)
-                .balanceSnapShot(9000L)
-                .build());
+        given(accountRepository.findBalanceViewByAccountNumber("1000000012"))
+                .willReturn(Optional.of(balanceView));
+        given(accountRepository.getReferenceById(1L)).willReturn(account);
+        given(transactionRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
 
         ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
         //when
@@ -100,6 +132,204 @@ class TransactionServiceTest {
         assertEquals(USE, transactionDto.getTransactionType());
         assertEquals(9000L, transactionDto.getBalanceSnapShot());
         assertEquals(1000L, transactionDto.getAmount());
+        assertEquals(10000L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("검증 후 재시도도 실패 - 엔티티로 출금하지 않고 실패")
+    void useBalance_conditionalUpdateKeepsFailing() {
+        //given
+        AccountUser tester = AccountUser.builder()
+                .name("tester")
+                .build();
+        tester.setId(12L);
+        Account account = Account.builder()
+                .accountUser(tester)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012")
+                .build();
+        given(accountUserRepository.findById(anyLong())).willReturn(Optional.of(tester));
+        given(accountRepository.findByAccountNumber(anyString())).willReturn(Optional.of(account));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(12L, "1000000012", USE_AMOUNT));
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(10000L, account.getBalance());
+        verify(accountRepository, times(2)).debitIfAvailable(eq("1000000012"), eq(12L),
+                eq(USE_AMOUNT), eq(AccountStatus.IN_USE), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("조건부 UPDATE 성공 - 계좌와 사용자를 읽지 않음")
+    void successUseBalance_conditionalUpdate() {
+        //given
+        Account account = Account.builder()
+                .accountNumber("1000000012")
+                .build();
+        account.setId(1L);
+        AccountRepository.BalanceView balanceView = new AccountRepository.BalanceView() {
+            @Override
+            public Long getId() {
+                return 1L;
+            }
+
+            @Override
+            public Long getBalance() {
+                return 9000L;
+            }
+        };
+        given(accountRepository.debitIfAvailable(eq("1000000012"), eq(12L), eq(USE_AMOUNT),
+                eq(AccountStatus.IN_USE), any())).willReturn(1);
+        given(accountRepository.findBalanceViewByAccountNumber("1000000012"))
+                .willReturn(Optional.of(balanceView));
+        given(accountRepository.getReferenceById(1L)).willReturn(account);
+        given(transactionRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        //when
+        TransactionDto transactionDto = transactionService.useBalance(12L, "1000000012", USE_AMOUNT);
+        //then
+        verify(transactionRepository, times(1)).save(captor.capture());
+        verify(accountUserRepository, never()).findById(anyLong());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+        assertEquals(9000L, captor.getValue().getBalanceSnapShot());
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+        assertEquals(S, transactionDto.getTransactionResultType());
+    }
+
+    @Test
+    @DisplayName("저널 사용 - 거래를 DB 에 바로 저장하지 않고 저널에 넘김")
+    void successUseBalance_journal() {
+        //given
+        Account account = Account.builder()
+                .accountNumber("1000000012")
+                .build();
+        account.setId(1L);
+        AccountRepository.BalanceView balanceView = new AccountRepository.BalanceView() {
+            @Override
+            public Long getId() {
+                return 1L;
+            }
+
+            @Override
+            public Long getBalance() {
+                return 9000L;
+            }
+        };
+        given(accountRepository.debitIfAvailable(eq("1000000012"), eq(12L), eq(USE_AMOUNT),
+                eq(AccountStatus.IN_USE), any())).willReturn(1);
+        given(accountRepository.findBalanceViewByAccountNumber("1000000012"))
+                .willReturn(Optional.of(balanceView));
+        given(accountRepository.getReferenceById(1L)).willReturn(account);
+        given(transactionJournalWriterProvider.getIfAvailable())
+                .willReturn(transactionJournalWriter);
+
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        //when
+        TransactionDto transactionDto = transactionService.useBalance(12L, "1000000012", USE_AMOUNT);
+        //then
+        verify(transactionJournalWriter, times(1))
+                .appendBeforeCommit(captor.capture(), eq("1000000012"));
+        verify(transactionRepository, never()).save(any());
+        assertEquals(9000L, captor.getValue().getBalanceSnapShot());
+        assertEquals(captor.getValue().getTransactionId(), transactionDto.getTransactionId());
+        assertEquals(S, transactionDto.getTransactionResultType());
+    }
+
+    @Test
+    @DisplayName("분할된 계좌 - 슬롯에서 출금")
+    void successUseBalance_shardedAccount() {
+        //given
+        AccountUser tester = AccountUser.builder()
+                .name("tester")
+                .build();
+        tester.setId(12L);
+        Account account = Account.builder()
+                .accountUser(tester)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(0L)
+                .shardCount(4)
+                .accountNumber("1000000012")
+                .build();
+
+        given(accountUserRepository.findById(anyLong())).willReturn(Optional.of(tester));
+        given(accountRepository.findByAccountNumber(anyString())).willReturn(Optional.of(account));
+        given(accountBalanceShardService.getBalance(account)).willReturn(9000L);
+        given(transactionRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        //when
+        transactionService.useBalance(12L, "1000000012", USE_AMOUNT);
+        //then
+        verify(accountBalanceShardService, times(1)).debit(account, USE_AMOUNT);
+        verify(transactionRepository, times(1)).save(captor.capture());
+        assertEquals(9000L, captor.getValue().getBalanceSnapShot());
+        assertEquals(0L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("묶음 출금 - 잔액이 부족한 항목만 실패 거래로 남김")
+    void useBalances_partialFailure() {
+        //given
+        AccountUser tester = AccountUser.builder()
+                .name("tester")
+                .build();
+        tester.setId(12L);
+        Account account = Account.builder()
+                .accountUser(tester)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(3000L)
+                .accountNumber("1000000012")
+                .build();
+        given(accountRepository.findByAccountNumber(anyString())).willReturn(Optional.of(account));
+        given(accountUserRepository.findById(12L)).willReturn(Optional.of(tester));
+        given(transactionRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        List<TransactionDto> results = transactionService.useBalances("1000000012", List.of(
+                new UseBalance.Request(12L, "1000000012", 2000L),
+                new UseBalance.Request(12L, "1000000012", 2000L),
+                new UseBalance.Request(12L, "1000000012", 1000L)));
+        //then
+        verify(accountUserRepository, times(1)).findById(12L);
+        assertEquals(S, results.get(0).getTransactionResultType());
+        assertEquals(F, results.get(1).getTransactionResultType());
+        assertEquals(S, results.get(2).getTransactionResultType());
+        assertEquals(0L, results.get(2).getBalanceSnapShot());
+        assertEquals(0L, account.getBalance());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("실패 거래 묶음 저장 - 없는 계좌는 건너뜀")
+    void saveFailedTransactions() {
+        //given
+        Account account = Account.builder()
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012")
+                .build();
+        given(accountRepository.findByAccountNumberIn(any()))
+                .willReturn(List.of(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        transactionService.saveFailedTransactions(List.of(
+                new FailedTransactionRecord(USE, "1000000012", 1000L, LocalDateTime.now()),
+                new FailedTransactionRecord(CANCEL, "1000000012", 2000L, LocalDateTime.now()),
+                new FailedTransactionRecord(USE, "9999999999", 3000L, LocalDateTime.now())));
+        //then
+        verify(accountRepository, times(1)).findByAccountNumberIn(any());
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(F, captor.getValue().get(0).getTransactionResultType());
+        assertEquals(CANCEL, captor.getValue().get(1).getTransactionType());
+        assertEquals(10000L, captor.getValue().get(1).getBalanceSnapShot());
     }
 
     @Test
@@ -224,43 +454,6 @@ class TransactionServiceTest {
         verify(transactionRepository, times(0)).save(any());
     }
 
-    @Test
-    @DisplayName("실패 트랜잭션 저장")
-    void saveFailedUseTransaction() {
-        //given
-        AccountUser tester = AccountUser.builder()
-                .name("tester")
-                .build();
-        tester.setId(12L);
-        Account account = Account.builder()
-                .accountUser(tester)
-                .accountStatus(AccountStatus.IN_USE)
-                .balance(10000L)
-                .accountNumber("1000000012")
-                .build();
-
-        given(accountRepository.findByAccountNumber(anyString())).willReturn(
-                Optional.of(account)
-        );
-        given(transactionRepository.save(any())).willReturn(Transaction.builder()
-                .account(account)
-                .transactionType(USE)
-                .transactionResultType(S)
-                .transactionId("transactionId")
-                .transactedAt(LocalDateTime.now())
-                .amount(1000L)
-                .balanceSnapShot(9000L)
-                .build());
-
-        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
-        //when
-        transactionService.saveFailedUseTransaction("1000000000", USE_AMOUNT);
-        //then
-        verify(transactionRepository, times(1)).save(captor.capture());
-        assertEquals(F, captor.getValue().getTransactionResultType());
-        assertEquals(10000L, captor.getValue().getBalanceSnapShot());
-    }
-
     @Test
     void successCancelBalance() {
         //given
@@ -315,6 +508,8 @@ class TransactionServiceTest {
         assertEquals(CANCEL, transactionDto.getTransactionType());
         assertEquals(10000L, transactionDto.getBalanceSnapShot());
         assertEquals(CANCEL_AMOUNT, transactionDto.getAmount());
+        // 잔액이 바뀌었으므로 커밋 뒤 계좌와 사용자의 ETag 를 바꾼다
+        verify(accountEtagResolver, times(1)).changedAfterCommit(account.getId(), 12L);
     }
 
     @Test
@@ -497,6 +692,7 @@ class TransactionServiceTest {
         assertEquals(S, transactionDto.getTransactionResultType());
         assertEquals(CANCEL_AMOUNT, transactionDto.getAmount());
         assertEquals("transactionId", transactionDto.getTransactionId());
+        verify(transactionCache, times(1)).put(transactionDto);
     }
 
     @Test
@@ -512,5 +708,127 @@ class TransactionServiceTest {
         assertEquals(TRANSACTION_NOT_FOUND, exception.getErrorCode());
     }
 
+    @Test
+    @DisplayName("캐시에 있는 거래는 DB 를 읽지 않음")
+    void queryTransaction_cached() {
+        //given
+        given(transactionCache.find("transactionId"))
+                .willReturn(Optional.of(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .amount(USE_AMOUNT)
+                        .build()));
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction("transactionId");
+        //then
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+        verify(transactionRepository, never()).findByTransactionId(anyString());
+    }
+
+    @Test
+    @DisplayName("DB 에 저장되기 전의 거래는 저널 대기열에서 조회")
+    void queryTransaction_pendingInJournal() {
+        //given
+        given(transactionRepository.findByTransactionId(anyString()))
+                .willReturn(Optional.empty());
+        given(transactionJournalWriterProvider.getIfAvailable())
+                .willReturn(transactionJournalWriter);
+        given(transactionJournalWriter.findPending("transactionId"))
+                .willReturn(Optional.of(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .amount(USE_AMOUNT)
+                        .build()));
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction("transactionId");
+        //then
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+        assertEquals(USE, transactionDto.getTransactionType());
+        assertEquals(USE_AMOUNT, transactionDto.getAmount());
+    }
+
+    @Test
+    void successTransfer() {
+        //given
+        AccountUser tester = AccountUser.builder()
+                .name("tester")
+                .build();
+        tester.setId(12L);
+        Account from = Account.builder()
+                .accountUser(tester)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012")
+                .build();
+        Account to = Account.builder()
+                .accountUser(tester)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(500L)
+                .accountNumber("1000000013")
+                .build();
+        given(accountUserRepository.findById(12L)).willReturn(Optional.of(tester));
+        given(accountRepository.findByAccountNumber("1000000012")).willReturn(Optional.of(from));
+        given(accountRepository.findByAccountNumber("1000000013")).willReturn(Optional.of(to));
+        given(transactionRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        //when
+        TransactionDto transactionDto =
+                transactionService.transfer(12L, "1000000012", "1000000013", USE_AMOUNT);
+        //then
+        verify(transactionRepository, times(2)).save(captor.capture());
+        Transaction deposit = captor.getAllValues().get(0);
+        Transaction withdrawal = captor.getAllValues().get(1);
+        assertEquals(TRANSFER_IN, deposit.getTransactionType());
+        assertEquals(TRANSFER_OUT, withdrawal.getTransactionType());
+        assertEquals(withdrawal.getTransactionId(), deposit.getLinkedTransactionId());
+        assertEquals(deposit.getTransactionId(), withdrawal.getLinkedTransactionId());
+        assertEquals(9000L, from.getBalance());
+        assertEquals(1500L, to.getBalance());
+        assertEquals(1500L, deposit.getBalanceSnapShot());
+        assertEquals(9000L, transactionDto.getBalanceSnapShot());
+        assertEquals(deposit.getTransactionId(), transactionDto.getLinkedTransactionId());
+    }
+
+    @Test
+    void transfer_sameAccount() {
+        //given
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transfer(12L, "1000000012", "1000000012", USE_AMOUNT));
+        //then
+        assertEquals(SAME_ACCOUNT_TRANSFER, exception.getErrorCode());
+    }
 
-}
\ No newline at end of file
+    @Test
+    void cancelTransfer_notCancellable() {
+        //given
+        Account account = Account.builder()
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012")
+                .build();
+        account.setId(1L);
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(TRANSFER_OUT)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now())
+                .amount(CANCEL_AMOUNT)
+                .build();
+        given(transactionRepository.findByTransactionId(anyString()))
+                .willReturn(Optional.of(transaction));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.cancelBalance("transactionId", "1000000012", CANCEL_AMOUNT));
+        //then
+        assertEquals(TRANSFER_NOT_CANCELLABLE, exception.getErrorCode());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.domain.Account;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static com.example.account.type.TransactionResultType.S;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionTransferServiceTest {
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private AccountLockProvider accountLockProvider;
+    @Mock
+    private LockPolicyRegistry lockPolicyRegistry;
+    @Spy
+    private LockContentionMonitor lockContentionMonitor = new LockContentionMonitor(100);
+    // 16 개 스트라이프에서 1000000000 은 5번, 1000000001 은 10번, 1000000002 는 11번, 1000000003 은 8번이다
+    @Spy
+    private AccountLocalLock accountLocalLock = new AccountLocalLock(16, false);
+    @InjectMocks
+    private TransactionTransferService transactionTransferService;
+
+    @BeforeEach
+    void setUp() {
+        given(lockPolicyRegistry.applyOverride(any())).willReturn(LockPolicy.DEFAULT);
+    }
+
+    @Test
+    void lockInAccountNumberOrder() {
+        //given
+        given(transactionService.transfer(1L, "1000000001", "1000000000", 1000L))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000001")
+                        .transactionResultType(S)
+                        .amount(1000L)
+                        .build());
+
+        //when
+        TransactionDto transactionDto =
+                transactionTransferService.transfer(1L, "1000000001", "1000000000", 1000L);
+        //then
+        InOrder order = inOrder(accountLockProvider, transactionService);
+        order.verify(accountLockProvider).lock(eq("1000000000"), any());
+        order.verify(accountLockProvider).lock(eq("1000000001"), any());
+        order.verify(transactionService).transfer(1L, "1000000001", "1000000000", 1000L);
+        order.verify(accountLockProvider).unlock(eq("1000000001"), any());
+        order.verify(accountLockProvider).unlock(eq("1000000000"), any());
+        assertEquals(S, transactionDto.getTransactionResultType());
+    }
+
+    @Test
+    void lockInStripeOrderWhenStripesDiffer() {
+        //given
+        given(transactionService.transfer(1L, "1000000002", "1000000003", 1000L))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000002")
+                        .transactionResultType(S)
+                        .amount(1000L)
+                        .build());
+
+        //when
+        transactionTransferService.transfer(1L, "1000000002", "1000000003", 1000L);
+        //then
+        // 계좌번호 순서가 아니라 스트라이프 순서로 잡아서 로컬 스트라이프를 반대로 잡는 이체가 없다
+        InOrder order = inOrder(accountLockProvider);
+        order.verify(accountLockProvider).lock(eq("1000000003"), any());
+        order.verify(accountLockProvider).lock(eq("1000000002"), any());
+    }
+
+    @Test
+    void secondLockFailed_releaseFirst() {
+        //given
+        willThrow(new AccountException(ACCOUNT_TRANSACTION_LOCK))
+                .given(accountLockProvider).lock(eq("1000000001"), any());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionTransferService.transfer(1L, "1000000000", "1000000001", 1000L));
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(accountLockProvider, times(1)).unlock(eq("1000000000"), any());
+        verify(accountLockProvider, never()).unlock(eq("1000000001"), any());
+        verify(transactionService, never()).transfer(anyLong(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void versionConflict_mappedToLockError() {
+        //given
+        given(transactionService.transfer(1L, "1000000000", "1000000001", 1000L))
+                .willThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionTransferService.transfer(1L, "1000000000", "1000000001", 1000L));
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(accountLockProvider, times(1)).unlock(eq("1000000000"), any());
+        verify(accountLockProvider, times(1)).unlock(eq("1000000001"), any());
+    }
+
+    @Test
+    void deadlock_mappedToLockError() {
+        //given
+        given(transactionService.transfer(1L, "1000000000", "1000000001", 1000L))
+                .willThrow(new CannotAcquireLockException("deadlock"));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionTransferService.transfer(1L, "1000000000", "1000000001", 1000L));
+        //then
+        assertEquals(ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+    }
+}